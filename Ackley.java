@@ -0,0 +1,89 @@
+/**
+ * Ackley
+ *
+ * minimum is 0.0, which occurs at (0.0,...,0.0)
+ */
+public class Ackley implements ObjectiveFunction {
+
+    @Override
+    public double evaluate(double[] pos, int off, int d) {
+        double firstSum = 0.0;
+        boolean overflow = false;
+        for (int i = off; i < off + d; i++) {
+            double prev = firstSum;
+            firstSum += pos[i] * pos[i];
+            if ((pos[i] > 0 && firstSum <= prev))
+                overflow = true;
+        }
+
+        double secondSum = 0.0;
+        for (int i = off; i < off + d; i++) {
+            secondSum += Math.cos(2.0 * Math.PI * pos[i]);
+        }
+
+        double part1 = Math.exp(-0.2 * Math.sqrt(firstSum / (double) (d)));
+        if (firstSum != 0 && part1 == 0)
+            overflow = true;
+        double part2 = Math.exp(secondSum / (double) (d));
+        if (secondSum != 0 && part2 == 0)
+            overflow = true;
+        if (overflow)
+            return Double.MAX_VALUE;
+        else
+            return -20.0 * part1 - part2 + 20.0 + Math.E;
+    }
+
+    @Override
+    public boolean hasApproximation() {
+        return true;
+    }
+
+    /**
+     * same as evaluate with the polynomial cosine of Rastrigin.approxCos2pi in
+     * place of Math.cos
+     */
+    @Override
+    public double approximate(double[] pos, int off, int d) {
+        double firstSum = 0.0;
+        boolean overflow = false;
+        for (int i = off; i < off + d; i++) {
+            double prev = firstSum;
+            firstSum += pos[i] * pos[i];
+            if ((pos[i] > 0 && firstSum <= prev))
+                overflow = true;
+        }
+
+        double secondSum = 0.0;
+        for (int i = off; i < off + d; i++) {
+            secondSum += Rastrigin.approxCos2pi(pos[i]);
+        }
+
+        double part1 = Math.exp(-0.2 * Math.sqrt(firstSum / (double) (d)));
+        if (firstSum != 0 && part1 == 0)
+            overflow = true;
+        double part2 = Math.exp(secondSum / (double) (d));
+        if (overflow)
+            return Double.MAX_VALUE;
+        else
+            return -20.0 * part1 - part2 + 20.0 + Math.E;
+    }
+
+    /**
+     * the mean cosine is off by at most 3e-5, so part2 <= e is off by at most
+     * e * (e^3e-5 - 1)
+     */
+    @Override
+    public double getApproximationError(double approx, int d) {
+        return 1e-4;
+    }
+
+    @Override
+    public double getMinPosition() {
+        return 16.0;
+    }
+
+    @Override
+    public double getMaxPosition() {
+        return 32.0;
+    }
+}
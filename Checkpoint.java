@@ -0,0 +1,284 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checkpoint
+ *
+ * Saves the full state of a HybridRun between steps to a file mapped into
+ * memory, and restores a run from it. The file holds a header and two slots
+ * of fixed layout; a write fills the inactive slot in place, forces it to
+ * disk, and only then switches the header to it, so a run killed mid-write
+ * still leaves the previous checkpoint intact. Nothing is serialized or
+ * allocated per write: every value is stored at its fixed offset, and only if
+ * it differs from what the slot already holds, so the pages of a slot that
+ * did not change since its last write stay clean and are not written out
+ * again. Opening an existing checkpoint of the same layout keeps its active
+ * slot, which stays the one restored from until a newer one is complete.
+ *
+ * A slot holds, in order:
+ *
+ * - the steps made, the evaluations made and the best value found
+ * - the seeds of the random streams, see HybridRun.reseed
+ * - the best position found
+ * - for every particle: position, velocity, pbest, gbest and the values of
+ *   pbest, gbest and position
+ * - the neighborhood graph's targets
+ * - the individuals passed to the next GA phase: genome and fitness
+ * - with a surrogate, its archive: the points held and the next one to
+ *   replace, the values and the points, and its statistics
+ *
+ * The budgets of Termination restart on resume, except the evaluation count.
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x4750534f; // "GPSO"
+    private static final int VERSION = 2;
+    private static final int HEADER = 64;
+
+    private final HybridRun run;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int n; // particles
+    private final int d; // dimensions
+    private final int edges; // neighborhood graph targets
+    private final int individuals;
+    private final int archive; // surrogate capacity, 0 without one
+    private final int slot_size;
+    private int active; // slot of the last complete checkpoint
+    private long sequence; // checkpoints written
+
+    /**
+     * maps a checkpoint file for a run whose swarm and population exist; a
+     * file of another layout is replaced, one of the same layout keeps its
+     * last checkpoint until write completes a newer one
+     */
+    public Checkpoint(Path file, HybridRun run) {
+        this.run = run;
+        this.n = run.swarm.swarm.length;
+        this.d = run.config.dimensionality;
+        this.edges = run.swarm.graph.targets.length;
+        this.individuals = run.curPop.size();
+        this.archive = run.surrogate == null ? 0 : run.surrogate.capacity;
+        this.slot_size = slotSize(n, d, edges, individuals, archive);
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    break;
+            }
+            boolean same = !header.hasRemaining() && header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && header.getInt(8) == n && header.getInt(12) == d && header.getInt(16) == edges
+                    && header.getInt(20) == individuals && header.getInt(40) == archive;
+            if (!same)
+                channel.truncate(0); // nothing in it this run could resume from
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + 2L * slot_size);
+            if (same) {
+                sequence = header.getLong(32);
+                active = sequence == 0 ? 1 : header.getInt(24);
+            } else {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, n);
+                buffer.putInt(12, d);
+                buffer.putInt(16, edges);
+                buffer.putInt(20, individuals);
+                buffer.putInt(40, archive);
+                buffer.force(0, HEADER);
+                active = 1; // the first write goes to slot 0
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot create checkpoint " + file, e);
+        }
+        if (run.seeds == null)
+            run.reseed();
+    }
+
+    private static int slotSize(int n, int d, int edges, int individuals, int archive) {
+        long size = 3 * 8L + (n + 2) * 8L + d * 8L + n * (4L * d + 3) * 8L + edges * 4L
+                + individuals * (d + 1L) * 8L;
+        if (archive > 0)
+            size += 6 * 8L + archive * (d + 1L) * 8L;
+        if (HEADER + 2 * size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("swarm too large to checkpoint in one mapping");
+        return (int) size;
+    }
+
+    /**
+     * saves the state of the run to the inactive slot and makes it the active
+     * one
+     */
+    public void write() {
+        int slot = 1 - active;
+        int at = HEADER + slot * slot_size;
+        at = putLong(at, run.iteration);
+        at = putLong(at, run.objective.getEvaluations());
+        at = putDouble(at, run.min_Val);
+        for (long seed : run.seeds)
+            at = putLong(at, seed);
+        at = putDoubles(at, run.min_pos == null ? new double[d] : run.min_pos);
+
+        for (Particle p : run.swarm.swarm) {
+            at = putDoubles(at, p.position);
+            at = putDoubles(at, p.velocity);
+            at = putDoubles(at, p.getPbest());
+            at = putDoubles(at, p.getGbest());
+            at = putDouble(at, p.getBestVal());
+            at = putDouble(at, p.getGbestVal());
+            at = putDouble(at, p.getPositionVal());
+        }
+        for (int target : run.swarm.graph.targets)
+            at = putInt(at, target);
+        for (Individual ind : run.curPop) {
+            at = putDoubles(at, ind.position);
+            at = putDouble(at, ind.fitnessScore);
+        }
+        Surrogate s = run.surrogate;
+        if (s != null) {
+            at = putLong(at, s.count);
+            at = putLong(at, s.next);
+            at = putDoubles(at, s.values);
+            at = putDoubles(at, s.points);
+            at = putLong(at, s.candidates.sum());
+            at = putLong(at, s.exact.sum());
+            at = putLong(at, s.batches.sum());
+            at = putDouble(at, s.correlations.sum());
+        }
+        buffer.force(HEADER + slot * slot_size, slot_size);
+
+        sequence++;
+        buffer.putLong(32, sequence);
+        buffer.putInt(24, slot);
+        buffer.force(0, HEADER);
+        active = slot;
+    }
+
+    /**
+     * Restores a run from a checkpoint file. The run must have the
+     * configuration it was saved with, and its swarm and population must have
+     * been created, but no phase run.
+     *
+     * @return false, leaving the run untouched, if the file was created but no
+     *         checkpoint was completed
+     */
+    public static boolean restore(Path file, HybridRun run) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int n = run.swarm.swarm.length;
+            int d = run.config.dimensionality;
+            int edges = run.swarm.graph.targets.length;
+            int individuals = run.config.size;
+            int archive = run.surrogate == null ? 0 : run.surrogate.capacity;
+            if (channel.size() < HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IllegalStateException(file + " is not a checkpoint");
+            if (buffer.getInt(8) != n || buffer.getInt(12) != d || buffer.getInt(16) != edges
+                    || buffer.getInt(20) != individuals || buffer.getInt(40) != archive)
+                throw new IllegalStateException(file + " was saved with a different configuration");
+            if (buffer.getLong(32) == 0)
+                return false;
+            int slot_size = slotSize(n, d, edges, individuals, archive);
+            int at = HEADER + buffer.getInt(24) * slot_size;
+
+            run.iteration = (int) buffer.getLong(at);
+            // the evaluations of creating the swarm again are not counted twice
+            run.objective.addEvaluations(buffer.getLong(at + 8) - run.objective.getEvaluations());
+            run.min_Val = buffer.getDouble(at + 16);
+            at += 24;
+            long[] seeds = new long[n + 2];
+            for (int i = 0; i < seeds.length; i++, at += 8)
+                seeds[i] = buffer.getLong(at);
+            run.reseed(seeds);
+            run.min_pos = new double[d];
+            at = getDoubles(buffer, at, run.min_pos);
+
+            for (Particle p : run.swarm.swarm) {
+                at = getDoubles(buffer, at, p.position);
+                at = getDoubles(buffer, at, p.velocity);
+                at = getDoubles(buffer, at, p.getPbest());
+                at = getDoubles(buffer, at, p.getGbest());
+                p.setBestVal(buffer.getDouble(at));
+                p.setGbestVal(buffer.getDouble(at + 8));
+                p.setPositionVal(buffer.getDouble(at + 16));
+                at += 24;
+            }
+            int[] targets = run.swarm.graph.targets;
+            for (int i = 0; i < edges; i++, at += 4)
+                targets[i] = buffer.getInt(at);
+            run.swarm.refresh_neighbors();
+
+            run.curPop = new ArrayList<Individual>(individuals);
+            for (int i = 0; i < individuals; i++) {
+                double[] position = new double[d];
+                at = getDoubles(buffer, at, position);
+                run.curPop.add(new Individual(position, buffer.getDouble(at)));
+                at += 8;
+            }
+            Surrogate s = run.surrogate;
+            if (s != null) {
+                s.count = (int) buffer.getLong(at);
+                s.next = (int) buffer.getLong(at + 8);
+                at = getDoubles(buffer, at + 16, s.values);
+                at = getDoubles(buffer, at, s.points);
+                restore(s.candidates, buffer.getLong(at));
+                restore(s.exact, buffer.getLong(at + 8));
+                restore(s.batches, buffer.getLong(at + 16));
+                s.correlations.reset();
+                s.correlations.add(buffer.getDouble(at + 24));
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read checkpoint " + file, e);
+        }
+    }
+
+    private static void restore(LongAdder counter, long value) {
+        counter.reset();
+        counter.add(value);
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the put methods store a value only where it differs, leaving its page clean
+
+    private int putInt(int at, int value) {
+        if (buffer.getInt(at) != value)
+            buffer.putInt(at, value);
+        return at + 4;
+    }
+
+    private int putLong(int at, long value) {
+        if (buffer.getLong(at) != value)
+            buffer.putLong(at, value);
+        return at + 8;
+    }
+
+    private int putDouble(int at, double value) {
+        return putLong(at, Double.doubleToRawLongBits(value));
+    }
+
+    private int putDoubles(int at, double[] values) {
+        for (double value : values)
+            at = putLong(at, Double.doubleToRawLongBits(value));
+        return at;
+    }
+
+    private static int getDoubles(MappedByteBuffer buffer, int at, double[] values) {
+        for (int i = 0; i < values.length; i++, at += 8)
+            values[i] = buffer.getDouble(at);
+        return at;
+    }
+}
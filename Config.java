@@ -0,0 +1,141 @@
+/**
+ * Config
+ *
+ * Settings of one hybrid GA/PSO optimization. The defaults are the ones Main
+ * runs with.
+ */
+public class Config {
+
+    public int runGA = 60;
+    public int runPSO = 140;
+    public String topology = "ra";
+    public String function = "styb";
+    public String selection = "rs"; // or es, bs
+    public String crossover = "uc"; // or op
+    public String storage = "soa"; // or obj, for both the swarm and the GA
+    public int threads = 1; // cores used to move the particles and evaluate offspring
+    // move each particle as soon as its last evaluation is done; with threads > 1
+    // the result depends on timing, so the seed and a checkpoint do not reproduce it
+    public boolean async = false;
+    public boolean vector = true; // SIMD objectives when jdk.incubator.vector is available
+    // out-of-process evaluation, see RemoteObjective
+    public int workers = 0; // worker processes evaluating the objective, 0 evaluates in this one
+    public String worker_command = null; // command starting a worker, null for the stand-in Worker
+    public long worker_delay = 0; // microseconds the stand-in Worker takes per evaluation
+    public int worker_batch = 16; // positions sent to a worker per request
+    public int worker_in_flight = 8; // requests outstanding at once over all workers
+    public boolean screen = false; // score GA offspring approximately before exactly
+    public boolean surrogate = false; // evaluate only the candidates a Surrogate predicts best
+    public double surrogate_fraction = 0.5; // share of each batch evaluated exactly
+    public int surrogate_neighbors = 8; // archive points a prediction is made from
+    public int surrogate_capacity = 1024; // evaluated points the surrogate keeps
+    public Long seed = null; // null draws a random seed
+    public boolean jmx = false; // publish live Metrics as an MBean
+    public String checkpoint = null; // file the state is saved to, null for none; not with pipeline
+    public double checkpoint_interval = 5; // seconds between checkpoints
+    public boolean resume = false; // continue from the checkpoint file if it exists
+    public String trace = null; // file of the convergence trace, null for none
+    public int trace_capacity = 1 << 16; // records buffered before they are dropped
+    public boolean pipeline = false; // run GA and PSO at once on two threads, see Pipeline
+    public int handoff = 5; // individuals each side of the pipeline sends per phase
+
+    // termination, see Termination; a run otherwise stops after its iterations
+    public long max_evaluations = 0; // 0 for no limit
+    public double time_limit = 0; // seconds, 0 for no limit
+    public double target = Double.NEGATIVE_INFINITY; // stop once a value this low is found
+    public long stagnation = 0; // stop after this many evaluations without improvement, 0 never
+    public double stagnation_epsilon = 1e-8; // smallest change that counts as an improvement
+
+    public int size = 49;
+    public int dimensionality = 30;
+    public double ga_cross_prob = 0.7;
+    public double ga_mut_prob = 0.3;
+    public int iterations = 100;
+    public double shift = 0.3;
+
+    // island model, see Islands
+    public int islands = 4; // sub-populations, each on its own thread
+    public int migration_interval = 10; // iterations between migrations
+    public String migration_topology = "ring"; // or full, random
+    public int migrants = 2; // best individuals sent to each destination
+    public String replacement = "worst"; // or random
+
+    /**
+     * sets the field of the given name from its text, e.g. set("size", "100")
+     */
+    public void set(String name, String value) {
+        try {
+            java.lang.reflect.Field field = Config.class.getField(name);
+            Class<?> type = field.getType();
+            if (type == int.class)
+                field.setInt(this, Integer.parseInt(value));
+            else if (type == long.class)
+                field.setLong(this, Long.parseLong(value));
+            else if (type == double.class)
+                field.setDouble(this, Double.parseDouble(value));
+            else if (type == boolean.class)
+                field.setBoolean(this, Boolean.parseBoolean(value));
+            else if (type == Long.class)
+                field.set(this, value.equals("null") ? null : Long.valueOf(value));
+            else
+                field.set(this, value.equals("null") ? null : value);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("unknown setting " + name);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * returns an independent copy of these settings
+     */
+    public Config copy() {
+        Config c = new Config();
+        c.runGA = runGA;
+        c.runPSO = runPSO;
+        c.topology = topology;
+        c.function = function;
+        c.selection = selection;
+        c.crossover = crossover;
+        c.storage = storage;
+        c.threads = threads;
+        c.async = async;
+        c.vector = vector;
+        c.workers = workers;
+        c.worker_command = worker_command;
+        c.worker_delay = worker_delay;
+        c.worker_batch = worker_batch;
+        c.worker_in_flight = worker_in_flight;
+        c.screen = screen;
+        c.surrogate = surrogate;
+        c.surrogate_fraction = surrogate_fraction;
+        c.surrogate_neighbors = surrogate_neighbors;
+        c.surrogate_capacity = surrogate_capacity;
+        c.seed = seed;
+        c.jmx = jmx;
+        c.checkpoint = checkpoint;
+        c.checkpoint_interval = checkpoint_interval;
+        c.resume = resume;
+        c.trace = trace;
+        c.trace_capacity = trace_capacity;
+        c.pipeline = pipeline;
+        c.handoff = handoff;
+        c.max_evaluations = max_evaluations;
+        c.time_limit = time_limit;
+        c.target = target;
+        c.stagnation = stagnation;
+        c.stagnation_epsilon = stagnation_epsilon;
+        c.size = size;
+        c.dimensionality = dimensionality;
+        c.ga_cross_prob = ga_cross_prob;
+        c.ga_mut_prob = ga_mut_prob;
+        c.iterations = iterations;
+        c.shift = shift;
+        c.islands = islands;
+        c.migration_interval = migration_interval;
+        c.migration_topology = migration_topology;
+        c.migrants = migrants;
+        c.replacement = replacement;
+        return c;
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CountingObjective
+ *
+ * Wraps an objective function and counts how many positions it evaluates. The
+ * count is safe to update from several threads at once.
+ */
+public class CountingObjective implements ObjectiveFunction {
+    private final ObjectiveFunction function;
+    private final LongAdder evaluations = new LongAdder();
+
+    public CountingObjective(ObjectiveFunction function) {
+        this.function = function;
+    }
+
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    /**
+     * the evaluations of a function if it counts them, 0 otherwise
+     */
+    public static long evaluations(ObjectiveFunction function) {
+        return function instanceof CountingObjective ? ((CountingObjective) function).getEvaluations() : 0;
+    }
+
+    /**
+     * counts evaluations made before a resume
+     */
+    void addEvaluations(long count) {
+        evaluations.add(count);
+    }
+
+    @Override
+    public double evaluate(double[] pos, int off, int d) {
+        evaluations.increment();
+        return function.evaluate(pos, off, d);
+    }
+
+    @Override
+    public void evaluate(double[][] positions, double[] out) {
+        evaluations.add(positions.length);
+        function.evaluate(positions, out);
+    }
+
+    @Override
+    public void evaluate(double[] positions, int row, int n, int d, double[] out) {
+        evaluations.add(n);
+        function.evaluate(positions, row, n, d, out);
+    }
+
+    @Override
+    public boolean hasApproximation() {
+        return function.hasApproximation();
+    }
+
+    @Override
+    public double approximate(double[] pos, int off, int d) {
+        return function.approximate(pos, off, d);
+    }
+
+    @Override
+    public double getApproximationError(double approx, int d) {
+        return function.getApproximationError(approx, d);
+    }
+
+    @Override
+    public double getMinPosition() {
+        return function.getMinPosition();
+    }
+
+    @Override
+    public double getMaxPosition() {
+        return function.getMaxPosition();
+    }
+
+    @Override
+    public double getMinVelocity() {
+        return function.getMinVelocity();
+    }
+
+    @Override
+    public double getMaxVelocity() {
+        return function.getMaxVelocity();
+    }
+}
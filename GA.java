@@ -1,19 +1,72 @@
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import jdk.jfr.FlightRecorder;
 
 public class GA {
 
-    public static int num_of_positions;
-    public static int num_of_individuals;
-    public static ArrayList<Integer> cnf;
-    private static double CROSSOVER_PROB;
-    private static double MUTATION_PROB;
-    private static String function;
-    private static double MUTATION_SHIFT;
+    public int num_of_positions;
+    public int num_of_individuals;
+    public ArrayList<Integer> cnf;
+    private double CROSSOVER_PROB;
+    private double MUTATION_PROB;
+    private ObjectiveFunction function;
+    private double MUTATION_SHIFT;
+    private SplittableRandom rand; // drives selection, crossover and mutation
+    private Selection selector = new Selection();
+    public int threads = 1; // > 1 evaluates each generation's changed genomes in parallel
+    public ForkJoinPool pool; // executor for parallel evaluation, created on first use
+    public Termination termination; // null runs every generation
+    // best exact value since the last report to termination; approximate and
+    // predicted fitness is never reported
+    private final DoubleAccumulator exact_best = new DoubleAccumulator(Math::min, Double.MAX_VALUE);
+    private double phase_best; // best exact value of the current execute call, for metrics
+    public Metrics metrics; // null records nothing
+    public Trace trace; // null records nothing
+    private long traced; // generations made over all calls, for the trace
+    private double[] sums; // scratch for the trace's diversity
+    private long bred; // individuals produced by selection, crossover and mutation, for metrics
+    // two-tier evaluation: offspring are scored approximately first, and only
+    // those that could enter the top SCREEN_FRACTION of the previous generation
+    // are scored exactly; the rest keep their approximate fitness
+    public boolean screen = false;
+    public double SCREEN_FRACTION = 0.2;
+    private double screen_threshold = Double.MAX_VALUE;
+    public final LongAdder screened = new LongAdder(); // offspring scored approximately
+    public final LongAdder rescored = new LongAdder(); // of those, offspring scored exactly
+    // learned pre-screening, see Surrogate: only the changed genomes predicted
+    // best are evaluated exactly, and screening is then not used
+    public Surrogate surrogate; // null evaluates every changed genome
+
+    public String storage = "obj"; // or "soa"
+    // flat storage used when storage is "soa": individual i owns the slice
+    // [i * d, (i + 1) * d) of a genome buffer. Each generation reads genomes and
+    // fitness and writes next_genomes and next_fitness, then the two are swapped.
+    private double[] genomes;
+    private double[] next_genomes;
+    private double[] fitness;
+    private double[] next_fitness;
+    private int[] picks; // breeding pool, as indices into genomes
+    private int[] perm; // random pairing of the breeding pool
+    private int[] pending; // rows of next_genomes that still need evaluating
+    private boolean[] changed; // rows of next_genomes made by crossover or mutated
+    private double[] sorted; // scratch for the screening threshold
+    private double[] predicted; // scratch for the surrogate: predictions of the pending rows
+    private int[] order; // pending rows by prediction
+    private double[] expected; // predictions and exact values of the rows evaluated exactly
+    private double[] actual;
+    private double[] batch; // genomes evaluated exactly, gathered into one block
+    private double[] batch_values;
+    // the generation execute last returned is not evaluated until last_fitness
+    // reads it, as the swarm it is handed to evaluates its positions itself
+    private ArrayList<Individual> last; // storage "obj"
+    private boolean unsettled; // storage "soa": next_genomes holds a generation not yet swapped in
+    private int unevaluated; // its changed rows, the first of pending
 
     /**
      * Initializes an instance of a GA object
@@ -22,7 +75,7 @@ public class GA {
      *                           position vector
      * @param num_of_individuals number of individuals to be generated to make up
      *                           the population
-     * @param function           a string for the function name
+     * @param function           the function being minimized
      * @param CROSSOVER_PROB     For each pairing from the breeding pool, the
      *                           likelihood that a crossover happens
      * @param MUTATION_PROB      For each variable assignment in each individual in
@@ -31,16 +84,19 @@ public class GA {
      * @param shift              a double representing the percentage by which a
      *                           variable in an invidiudal will increased or
      *                           decreased
+     * @param rng                random source of the run the population belongs
+     *                           to
      */
 
-    public GA(int num_of_positions, int num_of_individuals, String function, double CROSSOVER_PROB,
-            double MUTATION_PROB, double shift) {
+    public GA(int num_of_positions, int num_of_individuals, ObjectiveFunction function, double CROSSOVER_PROB,
+            double MUTATION_PROB, double shift, Rng rng) {
         this.num_of_positions = num_of_positions;
         this.num_of_individuals = num_of_individuals;
         this.function = function;
         this.CROSSOVER_PROB = CROSSOVER_PROB;
         this.MUTATION_PROB = MUTATION_PROB;
         this.MUTATION_SHIFT = shift;
+        rand = rng.split();
 
     }
 
@@ -54,11 +110,43 @@ public class GA {
      * indivudal generated is kept track throughout and the positions of the final
      * individuals are returned as double[][] to be handed in to the PSO.
      * 
+     * Each generation's crossover only builds the children's genomes; they are
+     * then evaluated together as one batch, in parallel when threads > 1; the
+     * last generation's are evaluated only by last_fitness. Each call is
+     * recorded in metrics when they are set.
      */
     public double[][] execute(int numIter, String crossOver, String selection, ArrayList<Individual> curGen) {
+        if (metrics == null)
+            return storage.equals("soa") ? execute_soa(numIter, crossOver, selection, curGen)
+                    : execute_obj(numIter, crossOver, selection, curGen);
+        long start = System.nanoTime();
+        long bytes = Metrics.allocatedBytes();
+        long before = bred;
+        phase_best = Double.MAX_VALUE;
+        double[][] positions = storage.equals("soa") ? execute_soa(numIter, crossOver, selection, curGen)
+                : execute_obj(numIter, crossOver, selection, curGen);
+        metrics.gaPhase(System.nanoTime() - start, Metrics.allocatedBytes() - bytes, bred - before, phase_best);
+        return positions;
+    }
 
-        for (int i = 0; i < numIter; i++) {
+    private double[][] execute_obj(int numIter, String crossOver, String selection, ArrayList<Individual> curGen) {
 
+        for (int i = 0; i < numIter; i++) {
+            if (termination != null && termination.done())
+                break;
+
+            // the event classes are not even loaded until Flight Recorder starts
+            GenerationEvent event = FlightRecorder.isInitialized() ? new GenerationEvent() : null;
+            boolean timed = event != null && event.isEnabled(); // no timestamps unless recorded
+            if (timed)
+                event.begin();
+            long start = timed ? System.nanoTime() : 0;
+
+            // fitness is evaluated lazily: the genomes crossover and mutation
+            // changed last generation are evaluated here, when selection or the
+            // screening threshold first reads them
+            if (screen)
+                screen_threshold = topFitness(curGen, SCREEN_FRACTION);
             if (selection.equals("rs")) {
                 curGen = rankSelection(curGen);
             } else if (selection.equals("es")) {
@@ -66,97 +154,501 @@ public class GA {
             } else {
                 curGen = boltzmannSelection(curGen);
             }
+            long selected = timed ? System.nanoTime() : 0;
             if (crossOver.equals("uc")) {
                 curGen = uniformCross(curGen);
 
             } else {
                 curGen = onePointCross(curGen);
             }
+            long crossed = timed ? System.nanoTime() : 0;
             curGen = mutation(curGen, MUTATION_PROB, MUTATION_SHIFT);
+            bred += curGen.size();
+            if (timed && event.shouldCommit())
+                event.end(i, start, selected, crossed, fitnessOf(curGen), curGen.size());
+            if (trace != null) {
+                double[] fitness = fitnessOf(curGen);
+                double sq = 0.0;
+                for (Individual ind : curGen)
+                    sq += Trace.accumulate(ind.position, 0, num_of_positions, sums());
+                trace_generation(fitness, curGen.size(), sq);
+            }
 
         }
 
-        double[][] new_positions = new double[Main.size][Main.dimensionality];
+        double[][] new_positions = new double[num_of_individuals][num_of_positions];
 
-        for (int i = 0; i < Main.size; i++) {
-            for (int j = 0; j < Main.dimensionality; j++) {
-                double num = curGen.get(5).getValueOfVar(j);
+        for (int i = 0; i < num_of_individuals; i++) {
+            for (int j = 0; j < num_of_positions; j++) {
+                double num = curGen.get(i).getValueOfVar(j);
                 new_positions[i][j] = num;
             }
         }
+        last = curGen;
 
         return new_positions;
 
     }
 
     /**
-     * Selects a breeding pool from a given population where each individual's
-     * probability of being chosen is their rank divided by the sum of all
-     * individual's ranks, where the highest value rank is the best individual
-     * 
-     * Chosen with replacement
+     * Returns the fitness of the positions execute last returned. The genomes
+     * its last generation changed are evaluated here, on the first call, so a
+     * phase whose result is only handed to the swarm does not evaluate them.
+     */
+    public double[] last_fitness() {
+        double[] values = new double[num_of_individuals];
+        if (storage.equals("soa")) {
+            settle(num_of_positions);
+            System.arraycopy(fitness, 0, values, 0, num_of_individuals);
+        } else {
+            evaluateDirty(last);
+            for (int i = 0; i < num_of_individuals; i++)
+                values[i] = last.get(i).fitnessScore;
+        }
+        return values;
+    }
+
+    /**
+     * replaces the population's random stream by one seeded from it and
+     * returns the seed, see HybridRun.reseed
+     */
+    long reseed() {
+        long seed = rand.nextLong();
+        rand = new SplittableRandom(seed);
+        return seed;
+    }
+
+    void reseed(long seed) {
+        rand = new SplittableRandom(seed);
+    }
+
+    /**
+     * Same algorithm as execute, run over two preallocated genome buffers. The
+     * breeding pool is a list of row indices, parents are paired through a
+     * shuffled permutation of it, children are written straight into the next
+     * buffer, and the buffers are swapped once the children are evaluated as
+     * one batch, which as in execute_obj happens when the next generation
+     * first reads them. A generation takes O(n * d) time and allocates nothing.
      */
-    public static ArrayList<Individual> rankSelection(ArrayList<Individual> population) {
-        ArrayList<Individual> selectedPop = new ArrayList<Individual>();
-        Collections.sort(population, new IndivComparator()); // sort fitness scores in order of least fit to most fit
-        Collections.reverse(population);
-        // create denominator of each individual's propbability
-        double denominator = ((population.size() * (population.size() + 1)) / 2);
-        // select individuals randomly with those of higher ranks having greater probs
-        while (selectedPop.size() < population.size()) {
-            double p = Math.random();
-            double cumulativeProbability = 0.0;
-            for (int i = 0; i < population.size(); i++) {
-                cumulativeProbability += (i + 1) / denominator;
-                if (p <= cumulativeProbability) {
-                    selectedPop.add(population.get(i));
-                    break;
+    private double[][] execute_soa(int numIter, String crossOver, String selection, ArrayList<Individual> curGen) {
+        int n = curGen.size();
+        int d = num_of_positions;
+        if (genomes == null || genomes.length != n * d) {
+            genomes = new double[n * d];
+            next_genomes = new double[n * d];
+            fitness = new double[n];
+            next_fitness = new double[n];
+            picks = new int[n];
+            perm = new int[n];
+            pending = new int[n];
+            changed = new boolean[n];
+            sorted = new double[n];
+            predicted = new double[n];
+            order = new int[n];
+            expected = new double[n];
+            actual = new double[n];
+        }
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(curGen.get(i).position, 0, genomes, i * d, d);
+            fitness[i] = curGen.get(i).fitnessScore;
+        }
+        unsettled = false;
+
+        for (int i = 0; i < numIter; i++) {
+            if (termination != null && termination.done())
+                break;
+            settle(d);
+            GenerationEvent event = FlightRecorder.isInitialized() ? new GenerationEvent() : null;
+            boolean timed = event != null && event.isEnabled();
+            if (timed)
+                event.begin();
+            long start = timed ? System.nanoTime() : 0;
+            if (screen) {
+                System.arraycopy(fitness, 0, sorted, 0, n);
+                Arrays.sort(sorted);
+                screen_threshold = sorted[Math.min(n - 1, (int) (SCREEN_FRACTION * n))];
+            }
+            if (selection.equals("rs")) {
+                selector.rank(fitness, picks, rand);
+            } else if (selection.equals("es")) {
+                selector.expRank(fitness, picks, rand);
+            } else {
+                selector.boltzmann(fitness, picks, rand);
+            }
+            long selected = timed ? System.nanoTime() : 0;
+            cross_soa(n, d, crossOver.equals("uc"));
+            long crossed = timed ? System.nanoTime() : 0;
+            mutation_soa(n, d);
+            // every genome that crossover or mutation changed is evaluated once
+            unevaluated = 0;
+            for (int row = 0; row < n; row++) {
+                if (changed[row]) {
+                    pending[unevaluated++] = row;
+                    changed[row] = false;
                 }
             }
+            unsettled = true;
+            bred += n;
+
+            if (timed && event.shouldCommit()) {
+                settle(d);
+                event.end(i, start, selected, crossed, fitness, n);
+            }
+            if (trace != null) {
+                settle(d);
+                double sq = 0.0;
+                for (int k = 0; k < n; k++)
+                    sq += Trace.accumulate(genomes, k * d, d, sums());
+                trace_generation(fitness, n, sq);
+            }
         }
-        return selectedPop;
+
+        double[][] new_positions = new double[num_of_individuals][d];
+        double[] newest = unsettled ? next_genomes : genomes;
+        for (int i = 0; i < num_of_individuals; i++)
+            System.arraycopy(newest, i * d, new_positions[i], 0, d);
+        return new_positions;
     }
 
     /**
-     * Selects a breeding pool based on a population where each individual's
-     * likelihood of being chosen is e raised to their rank divided by the sum of
-     * this value for all individuals, where the highest rank corresponds to the
-     * most fit individual
-     * 
-     * Chosen with replacement
+     * evaluates the changed rows of the generation in next_genomes and swaps
+     * it in, if it is not yet
+     */
+    private void settle(int d) {
+        if (!unsettled)
+            return;
+        evaluate_soa(unevaluated, d);
+        double[] tmp = genomes;
+        genomes = next_genomes;
+        next_genomes = tmp;
+        tmp = fitness;
+        fitness = next_fitness;
+        next_fitness = tmp;
+        unsettled = false;
+    }
+
+    private double[] sums() {
+        if (sums == null)
+            sums = new double[num_of_positions];
+        return sums;
+    }
+
+    /**
+     * records a generation: the best and mean fitness and the spread of the
+     * genomes, whose sums are in sums
      */
-    public static ArrayList<Individual> expRankSelection(ArrayList<Individual> population) {
-        ArrayList<Individual> selectedPop = new ArrayList<Individual>(); // will store selected pop.
-        HashMap<Individual, Double> prob = new HashMap<Individual, Double>(); // will store probabilities
-        Collections.sort(population, new IndivComparator()); // Sort the population
-        Collections.reverse(population); // lower fitness represents more fit indiv
-        double sum = 0.0; // sum of all exponentials
-        for (int i = 0; i < population.size(); i++) {
-            sum += Math.exp(i + 1);
+    private void trace_generation(double[] fitness, int n, double sq) {
+        double best = Double.MAX_VALUE;
+        double mean = 0.0;
+        for (int k = 0; k < n; k++) {
+            best = Math.min(best, fitness[k]);
+            mean += fitness[k];
         }
+        trace.record(traced++, Trace.GA, best, mean / n, CountingObjective.evaluations(function),
+                Trace.diversity(sums(), sq, n));
+    }
 
-        for (int i = 0; i < population.size(); i++) { // map individuals to their probabilities
-            double indProb = Math.exp(i + 1) / sum;
-            prob.put(population.get(i), indProb);
+    /**
+     * Pairs the breeding pool through a shuffled permutation and writes the next
+     * generation: with probability CROSSOVER_PROB a pair is replaced by two
+     * children made by uniform or one-point crossover as in uniformCross and
+     * onePointCross, otherwise it is copied. With an odd pool the last member
+     * of the permutation is copied unpaired. The children's rows are marked
+     * changed.
+     */
+    private void cross_soa(int n, int d, boolean uniform) {
+        for (int i = 0; i < n; i++)
+            perm[i] = i;
+        for (int i = n - 1; i > 0; i--) { // Fisher-Yates
+            int j = rand.nextInt(i + 1);
+            int tmp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = tmp;
         }
 
-        Random rand = new Random();
-        while (selectedPop.size() < population.size()) { // do the selection
-            double r = rand.nextDouble();
-            double cumulative = 0.0;
-            Iterator<Individual> iter = population.iterator();
-            while (true) {
-
-                Individual ind = iter.next();
-                cumulative += prob.get(ind);
-                if (cumulative > r || !iter.hasNext()) {
-                    selectedPop.add(ind);
-                    break;
+        for (int i = 0; i < n; i++) {
+            if (i == n - 1 || rand.nextDouble() >= CROSSOVER_PROB) { // no crossover
+                copy_row(picks[perm[i]], i, d);
+                if (i < n - 1) {
+                    i++;
+                    copy_row(picks[perm[i]], i, d);
                 }
+                continue;
             }
+            int p1 = picks[perm[i]] * d;
+            int p2 = picks[perm[i + 1]] * d;
+            int c1 = i * d;
+            int c2 = (i + 1) * d;
+            if (uniform) {
+                for (int c = c1; c <= c2; c += d) {
+                    next_genomes[c] = 0.0; // the first variable is not inherited, as in uniformCross
+                    for (int k = 1; k < d; k++)
+                        next_genomes[c + k] = rand.nextDouble() < 0.5 ? genomes[p1 + k] : genomes[p2 + k];
+                }
+            } else {
+                int randomIndex = rand.nextInt((d - 1)) + 1;
+                System.arraycopy(genomes, p1, next_genomes, c1, randomIndex);
+                System.arraycopy(genomes, p2 + randomIndex, next_genomes, c1 + randomIndex, d - randomIndex);
+                System.arraycopy(genomes, p2, next_genomes, c2, randomIndex);
+                System.arraycopy(genomes, p1 + randomIndex, next_genomes, c2 + randomIndex, d - randomIndex);
+            }
+            changed[i] = true;
+            changed[i + 1] = true;
+            i++;
         }
-        return selectedPop;
+    }
+
+    private void copy_row(int from, int to, int d) {
+        System.arraycopy(genomes, from * d, next_genomes, to * d, d);
+        next_fitness[to] = fitness[from];
+    }
+
+    /**
+     * evaluateDirty over the pending rows of next_genomes
+     */
+    private void evaluate_soa(int children, int d) {
+        if (surrogate == null) {
+            evaluate_rows(children, d, screen && function.hasApproximation());
+            report_exact();
+            return;
+        }
+        boolean ranked = surrogate.ready();
+        int count = children;
+        if (ranked) {
+            for (int c = 0; c < children; c++)
+                predicted[c] = surrogate.predict(next_genomes, pending[c] * d);
+            count = surrogate.choose(predicted, children, order);
+            for (int j = 0; j < children; j++) {
+                if (j < count)
+                    expected[j] = predicted[order[j]];
+                else
+                    next_fitness[pending[order[j]]] = predicted[order[j]];
+            }
+            // the rows to evaluate exactly become the first count pending
+            for (int j = 0; j < children; j++)
+                order[j] = pending[order[j]];
+            System.arraycopy(order, 0, pending, 0, children);
+        }
+        evaluate_rows(count, d, false);
+        for (int j = 0; j < count; j++) {
+            actual[j] = next_fitness[pending[j]];
+            surrogate.add(next_genomes, pending[j] * d, actual[j]);
+        }
+        if (ranked)
+            surrogate.correlate(expected, actual, count);
+        report_exact();
+    }
+
+    /**
+     * Evaluates the first children rows of pending. With screening each row is
+     * scored approximately first, and only those that could reach the
+     * screening threshold are kept in pending; the rows left are gathered and
+     * evaluated exactly in one batch, see evaluate_batch.
+     */
+    private void evaluate_rows(int children, int d, boolean screening) {
+        int count = children;
+        if (screening) {
+            count = 0;
+            for (int c = 0; c < children; c++) {
+                int row = pending[c];
+                double approx = function.approximate(next_genomes, row * d, d);
+                screened.increment();
+                if (approx - function.getApproximationError(approx, d) >= screen_threshold) {
+                    next_fitness[row] = approx;
+                } else {
+                    pending[count++] = row;
+                    rescored.increment();
+                }
+            }
+        }
+        ensure_batch(count, d);
+        for (int c = 0; c < count; c++)
+            System.arraycopy(next_genomes, pending[c] * d, batch, c * d, d);
+        evaluate_batch(count, d);
+        for (int c = 0; c < count; c++) {
+            next_fitness[pending[c]] = batch_values[c];
+            exact_best.accumulate(batch_values[c]);
+        }
+    }
+
+    private void ensure_batch(int n, int d) {
+        if (batch == null || batch.length < n * d) {
+            batch = new double[n * d];
+            batch_values = new double[n];
+        }
+    }
+
+    /**
+     * Evaluates the first n genomes of batch into batch_values with one batch
+     * call to the objective, or with one call per thread when threads is
+     * greater than 1, so that an objective evaluated in worker processes
+     * receives whole batches instead of one genome per round trip.
+     */
+    private void evaluate_batch(int n, int d) {
+        if (threads > 1 && n > 1) {
+            if (pool == null || pool.getParallelism() != threads)
+                pool = new ForkJoinPool(threads);
+            int chunk = (n + threads - 1) / threads;
+            pool.submit(() -> IntStream.range(0, (n + chunk - 1) / chunk).parallel().forEach(
+                    t -> function.evaluate(batch, t * chunk, Math.min(chunk, n - t * chunk), d, batch_values)))
+                    .join();
+        } else if (n > 0) {
+            function.evaluate(batch, 0, n, d, batch_values);
+        }
+    }
+
+    /**
+     * reports the best value evaluated exactly since the last report, and
+     * keeps it for the phase
+     */
+    private void report_exact() {
+        double best = exact_best.getThenReset();
+        phase_best = Math.min(phase_best, best);
+        if (termination != null && best < Double.MAX_VALUE)
+            termination.report(best);
+    }
+
+    /**
+     * mutation over the rows of next_genomes, marking the mutated rows changed
+     */
+    private void mutation_soa(int n, int d) {
+        for (int i = 0; i < n * d; i++) {
+            double p = rand.nextDouble();
+            if (p <= MUTATION_PROB) {
+                changed[i / d] = true;
+                double random = rand.nextDouble();
+                if (random < 0.5)
+                    next_genomes[i] *= (1 + MUTATION_SHIFT);
+                else
+                    next_genomes[i] *= (1 - MUTATION_SHIFT);
+            }
+        }
+    }
+
+    /**
+     * Evaluates every individual of a population whose fitness is out of date.
+     * Individuals sharing a genome were all made from one that was not changed,
+     * so each changed genome is evaluated once. With a surrogate only the best
+     * predicted fraction is evaluated exactly, the rest keep their prediction,
+     * and the exact values train the surrogate.
+     */
+    public void evaluateDirty(ArrayList<Individual> population) {
+        ArrayList<Individual> dirty = new ArrayList<Individual>();
+        for (Individual ind : population) {
+            if (ind.dirty)
+                dirty.add(ind);
+        }
+        if (dirty.isEmpty())
+            return;
+        if (surrogate == null) {
+            evaluate_exact(dirty, screen && function.hasApproximation());
+            report_exact();
+            return;
+        }
+        double[] expected = null; // predictions of the individuals evaluated exactly
+        if (surrogate.ready()) {
+            int n = dirty.size();
+            double[] predicted = new double[n];
+            for (int i = 0; i < n; i++)
+                predicted[i] = surrogate.predict(dirty.get(i).position, 0);
+            int[] order = new int[n];
+            int m = surrogate.choose(predicted, n, order);
+            ArrayList<Individual> exact = new ArrayList<Individual>(m);
+            expected = new double[m];
+            for (int j = 0; j < n; j++) {
+                Individual ind = dirty.get(order[j]);
+                if (j < m) {
+                    exact.add(ind);
+                    expected[j] = predicted[order[j]];
+                } else {
+                    ind.fitnessScore = predicted[order[j]];
+                    ind.dirty = false;
+                }
+            }
+            dirty = exact;
+        }
+        evaluate_exact(dirty, false);
+        double[] actual = new double[dirty.size()];
+        for (int j = 0; j < actual.length; j++) {
+            actual[j] = dirty.get(j).fitnessScore;
+            surrogate.add(dirty.get(j).position, 0, actual[j]);
+        }
+        if (expected != null)
+            surrogate.correlate(expected, actual, actual.length);
+        report_exact();
+    }
+
+    /**
+     * Evaluates the given individuals: their genomes are gathered and
+     * evaluated in one batch, see evaluate_batch. With screening each is
+     * scored approximately first, and only those that could reach the
+     * screening threshold are evaluated exactly.
+     */
+    private void evaluate_exact(ArrayList<Individual> dirty, boolean screening) {
+        int d = num_of_positions;
+        ArrayList<Individual> exact = dirty;
+        if (screening) {
+            exact = new ArrayList<Individual>();
+            for (Individual child : dirty) {
+                double approx = function.approximate(child.position, 0, d);
+                screened.increment();
+                if (approx - function.getApproximationError(approx, d) >= screen_threshold) {
+                    child.fitnessScore = approx;
+                    child.dirty = false;
+                } else {
+                    exact.add(child);
+                    rescored.increment();
+                }
+            }
+        }
+        int n = exact.size();
+        ensure_batch(n, d);
+        for (int i = 0; i < n; i++)
+            System.arraycopy(exact.get(i).position, 0, batch, i * d, d);
+        evaluate_batch(n, d);
+        for (int i = 0; i < n; i++) {
+            Individual child = exact.get(i);
+            child.fitnessScore = batch_values[i];
+            child.dirty = false;
+            exact_best.accumulate(batch_values[i]);
+        }
+    }
+
+    /**
+     * returns the fitness an individual needs to be in the best fraction of a
+     * population
+     */
+    private double topFitness(ArrayList<Individual> population, double fraction) {
+        double[] fitness = fitnessOf(population);
+        Arrays.sort(fitness);
+        return fitness[Math.min(fitness.length - 1, (int) (fraction * fitness.length))];
+    }
+
+    /**
+     * Selects a breeding pool from a given population where each individual's
+     * probability of being chosen is their rank divided by the sum of all
+     * individual's ranks, where the highest value rank is the best individual
+     * 
+     * Chosen with replacement
+     */
+    public ArrayList<Individual> rankSelection(ArrayList<Individual> population) {
+        int[] picks = new int[population.size()];
+        selector.rank(fitnessOf(population), picks, rand);
+        return picked(population, picks);
+    }
 
+    /**
+     * Selects a breeding pool based on a population where each individual's
+     * likelihood of being chosen is e raised to their rank divided by the sum of
+     * this value for all individuals, where the highest rank corresponds to the
+     * most fit individual
+     * 
+     * Chosen with replacement
+     */
+    public ArrayList<Individual> expRankSelection(ArrayList<Individual> population) {
+        int[] picks = new int[population.size()];
+        selector.expRank(fitnessOf(population), picks, rand);
+        return picked(population, picks);
     }
 
     /**
@@ -167,37 +659,36 @@ public class GA {
      * 
      * Chosen with replacement
      */
-    public static ArrayList<Individual> boltzmannSelection(ArrayList<Individual> population) {
-        ArrayList<Individual> bp = new ArrayList<Individual>(); // will store selected pop.
-        HashMap<Individual, Double> prob = new HashMap<Individual, Double>(); // for storing probabilities
-        Iterator<Individual> it = population.iterator();
-        double sum = 0.0;
-        while (it.hasNext()) {
-            sum += Math.exp(1 / it.next().getFitnessScore());
-        }
-        Iterator<Individual> itr = population.iterator();
-        while (itr.hasNext()) {
-            Individual i = itr.next();
-            double p = Math.exp(1 / i.getFitnessScore()) / sum; // favoring individuals with lower fitness scores
-            prob.put(i, p); // map indiivduals to their probabilities
-        }
+    public ArrayList<Individual> boltzmannSelection(ArrayList<Individual> population) {
+        int[] picks = new int[population.size()];
+        selector.boltzmann(fitnessOf(population), picks, rand);
+        return picked(population, picks);
+    }
 
-        Random rand = new Random();
-        while (bp.size() < population.size()) { // Do the selection
-            double r = rand.nextDouble();
-            double probSum = 0.0;
-            Iterator<Individual> i = population.iterator();
-            while (i.hasNext()) {
-                Individual ind = i.next();
-                probSum += prob.get(ind);
-                if (probSum > r || !i.hasNext()) {
-                    bp.add(ind);
-                    break;
-                }
-            }
-        }
+    /**
+     * the fitness of every individual, evaluating those that are out of date
+     */
+    private double[] fitnessOf(ArrayList<Individual> population) {
+        evaluateDirty(population);
+        double[] fitness = new double[population.size()];
+        for (int i = 0; i < fitness.length; i++)
+            fitness[i] = population.get(i).fitnessScore;
+        return fitness;
+    }
 
-        return bp;
+    /**
+     * the breeding pool of the picked individuals; an individual picked again
+     * enters as a copy sharing its genome, so mutating one copy cannot change
+     * the others
+     */
+    private ArrayList<Individual> picked(ArrayList<Individual> population, int[] picks) {
+        ArrayList<Individual> selectedPop = new ArrayList<Individual>(picks.length);
+        boolean[] taken = new boolean[population.size()];
+        for (int pick : picks) {
+            selectedPop.add(taken[pick] ? population.get(pick).share() : population.get(pick));
+            taken[pick] = true;
+        }
+        return selectedPop;
     }
 
     /**
@@ -205,23 +696,21 @@ public class GA {
      * probability, where a dividing line is made at some point in the variable
      * assignments, and the values are swapped across that point
      */
-    public static ArrayList<Individual> onePointCross(ArrayList<Individual> population) {
+    public ArrayList<Individual> onePointCross(ArrayList<Individual> population) {
         ArrayList<Individual> nextPop = new ArrayList<Individual>();
-        Random random = new Random();
         if (population.size() % 2 != 0) { // checks to see if pop size is odd
-            Individual single = population.remove(random.nextInt(population.size()));
+            Individual single = population.remove(rand.nextInt(population.size()));
             nextPop.add(single);
         }
         while (population.size() > 1) {
 
-            Random rand = new Random();
             Individual firstParent = population.remove(rand.nextInt(population.size()));
             Individual secondParent = population.remove(rand.nextInt(population.size()));
 
             if (rand.nextDouble() < CROSSOVER_PROB) {
 
-                Individual firstChild = new Individual(new double[num_of_positions], function);
-                Individual secondChild = new Individual(new double[num_of_positions], function);
+                Individual firstChild = new Individual(new double[num_of_positions]);
+                Individual secondChild = new Individual(new double[num_of_positions]);
                 int randomIndex = rand.nextInt((num_of_positions - 1)) + 1;
                 // accounting for the valid range of indices, excluding 0 and size
                 for (int i = 0; i < randomIndex; i++) {
@@ -258,29 +747,28 @@ public class GA {
      * When a crossover is performed, it is done twice so that the population size
      * remains constant
      */
-    public static ArrayList<Individual> uniformCross(ArrayList<Individual> population) {
+    public ArrayList<Individual> uniformCross(ArrayList<Individual> population) {
 
         ArrayList<Individual> newgen = new ArrayList<Individual>();
-        Random random = new Random();
         if (population.size() % 2 != 0) { // checks to see if pop size is odd
-            Individual single = population.remove(random.nextInt(population.size()));
+            Individual single = population.remove(rand.nextInt(population.size()));
             newgen.add(single);
         }
         while (population.size() > 0) {
-            Random r = new Random();
-            Individual p1 = population.remove(r.nextInt(population.size()));
+            Individual p1 = population.remove(rand.nextInt(population.size()));
 
-            Individual p2 = population.remove(r.nextInt(population.size()));
-            if (r.nextDouble() < CROSSOVER_PROB) {
+            Individual p2 = population.remove(rand.nextInt(population.size()));
+            if (rand.nextDouble() < CROSSOVER_PROB) {
                 for (int i = 0; i < 2; i++) {
                     double vars[] = new double[num_of_positions];
                     for (int k = 1; k < vars.length; k++) {
-                        if (r.nextDouble() < 0.5)
+                        if (rand.nextDouble() < 0.5)
                             vars[k] = p1.getValueOfVar(k);
                         else
                             vars[k] = p2.getValueOfVar(k);
                     }
-                    newgen.add(new Individual(vars, function));
+                    Individual child = new Individual(vars);
+                    newgen.add(child);
                 }
             } else {
                 newgen.add(p1);
@@ -296,7 +784,7 @@ public class GA {
         /**
          * Comparator that compares two individuals based on fitness. Returns a positive
          * value if o1 has higher score, negative value is o2 has higher score, and 0 if
-         * they are the same
+         * they are the same. Both must have been evaluated since they last changed.
          */
         @Override
         public int compare(Individual o1, Individual o2) {
@@ -309,17 +797,17 @@ public class GA {
      * Goes through population and, with some probability for each variable
      * assignment in each individual, flips the variable assignment at that slot
      */
-    public static ArrayList<Individual> mutation(ArrayList<Individual> children, double mutation_prob, double shift) {
+    public ArrayList<Individual> mutation(ArrayList<Individual> children, double mutation_prob, double shift) {
         ArrayList<Individual> mutated_children = new ArrayList<Individual>();
         for (Individual child : children) {
             for (int i = 0; i < (child.position).length; i++) {
-                double rand = Math.random();
-                if (rand <= mutation_prob) {
-                    double random = Math.random();
+                double p = rand.nextDouble();
+                if (p <= mutation_prob) {
+                    double random = rand.nextDouble();
                     if (random < 0.5)
-                        child.position[i] *= (1 + shift);
+                        child.set(i, child.position[i] * (1 + shift));
                     else
-                        child.position[i] *= (1 - shift);
+                        child.set(i, child.position[i] * (1 - shift));
                 }
             }
             mutated_children.add(child);
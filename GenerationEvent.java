@@ -0,0 +1,69 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * GenerationEvent
+ *
+ * Flight Recorder event for one GA generation. Disabled unless a recording
+ * enables gapso.Generation, e.g. with the settings in gapso.jfc; while it is
+ * disabled GA.execute takes no timestamps and the event is never committed.
+ */
+@Name("gapso.Generation")
+@Label("GA Generation")
+@Category("GA-PSO")
+@Description("One generation of GA.execute")
+@Enabled(false)
+@StackTrace(false)
+class GenerationEvent extends Event {
+
+    @Label("Generation")
+    int generation;
+
+    @Label("Selection Time")
+    @Description("Selection, including evaluating the genomes changed by the previous generation in obj storage")
+    @Timespan(Timespan.NANOSECONDS)
+    long selectionTime;
+
+    @Label("Crossover Time")
+    @Description("Crossover of the breeding pool")
+    @Timespan(Timespan.NANOSECONDS)
+    long crossoverTime;
+
+    @Label("Mutation Time")
+    @Description("Mutation, including evaluating the changed genomes in soa storage")
+    @Timespan(Timespan.NANOSECONDS)
+    long mutationTime;
+
+    @Label("Best Fitness")
+    double bestFitness;
+
+    @Label("Mean Fitness")
+    double meanFitness;
+
+    /**
+     * fills in the event from the timestamps taken before selection, crossover
+     * and mutation and the fitness of the new generation, and commits it
+     */
+    void end(int generation, long start, long selected, long crossed, double[] fitness, int n) {
+        long now = System.nanoTime();
+        this.generation = generation;
+        selectionTime = selected - start;
+        crossoverTime = crossed - selected;
+        mutationTime = now - crossed;
+        double best = Double.MAX_VALUE;
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            best = Math.min(best, fitness[i]);
+            sum += fitness[i];
+        }
+        bestFitness = best;
+        meanFitness = sum / n;
+        commit();
+    }
+}
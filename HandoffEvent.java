@@ -0,0 +1,35 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * HandoffEvent
+ *
+ * Flight Recorder event for the hand-off of the GA's positions to the swarm
+ * in HybridRun.step. Disabled unless a recording enables gapso.Handoff.
+ */
+@Name("gapso.Handoff")
+@Label("GA to PSO Hand-off")
+@Category("GA-PSO")
+@Description("Copying the positions returned by the GA into the particles")
+@Enabled(false)
+@StackTrace(false)
+class HandoffEvent extends Event {
+
+    @Label("Iteration")
+    int iteration;
+
+    @Label("Individuals")
+    int individuals;
+
+    @Label("GA Best Fitness")
+    double gaBest;
+
+    @Label("Best Value Before")
+    @Description("Best value of the run before the hand-off")
+    double runBest;
+}
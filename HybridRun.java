@@ -0,0 +1,267 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * HybridRun
+ *
+ * One optimization of the hybrid model: a swarm and a GA population that take
+ * turns improving the same individuals. A run owns its configuration,
+ * objective, random source and both optimizers, so any number of runs can
+ * execute at the same time in one JVM.
+ *
+ * @author Mustafa Aydogdu
+ * @author Griffin Ott
+ * @author Evan Phillips
+ */
+public class HybridRun {
+
+    public final Config config;
+    public final CountingObjective objective;
+    public final Rng rng;
+    public Swarm swarm;
+    public GA population;
+
+    public double min_Val = Double.MAX_VALUE; // best value found
+    public double[] min_pos; // position of min_Val
+    public long nanos; // wall-clock time of run
+    public Pipeline pipeline; // set when the run is pipelined
+    public Termination termination; // why the run stopped, see reason()
+    public Metrics metrics; // live telemetry, may be shared with other runs; null records nothing
+    public Trace trace; // convergence trace, when config.trace is set
+    public Surrogate surrogate; // shared by both optimizers, when config.surrogate is set
+
+    ArrayList<Individual> curPop; // individuals passed from the last phase to the next
+    int iteration; // steps made
+    long[] seeds; // seeds of the random streams since the last reseed
+    private ForkJoinPool pool; // the swarm's, and the GA's unless pipelined
+    private ForkJoinPool ga_pool; // the GA's own pool in a pipelined run
+    private Metrics registered; // metrics this run registered itself, closed by end()
+    public final RemoteObjective remote; // workers evaluating the objective, null unless config.workers is set
+
+    /**
+     * Initializes a run, its objective and its random source; the swarm and the
+     * population are created when the run starts
+     *
+     * @param config settings of the run, copied so later changes to it do not
+     *               affect the run
+     * @throws IllegalArgumentException for a pipelined run with a checkpoint,
+     *                                  as its stages are never paused at once
+     */
+    public HybridRun(Config config) {
+        this.config = config.copy();
+        Config c = this.config;
+        if (c.pipeline && c.checkpoint != null)
+            throw new IllegalArgumentException("a pipelined run cannot be checkpointed");
+        ObjectiveFunction f = ObjectiveFunction.forName(c.function);
+        if (c.workers > 0) {
+            List<String> command = c.worker_command == null ? RemoteObjective.command(c.function, c.worker_delay)
+                    : Arrays.asList(c.worker_command.split(" "));
+            remote = new RemoteObjective(f, command, c.workers, c.worker_batch, c.worker_in_flight);
+            this.objective = new CountingObjective(remote);
+        } else {
+            remote = null;
+            this.objective = new CountingObjective(c.vector ? ObjectiveFunction.vectorized(f) : f);
+        }
+        this.rng = this.config.seed == null ? new Rng() : new Rng(this.config.seed);
+    }
+
+    /**
+     * Runs PSO, then alternates GA and PSO for the configured number of
+     * iterations, handing the positions of one to the other each time. A
+     * pipelined run instead runs both at once, see Pipeline. With a checkpoint
+     * file the state is saved every checkpoint_interval seconds and at the end,
+     * and with resume the run continues from the file if it exists.
+     */
+    public HybridRun run() {
+        long start = System.nanoTime();
+        Checkpoint checkpoint = null;
+        if (config.checkpoint != null) {
+            Path file = Paths.get(config.checkpoint);
+            if (config.resume && Files.exists(file)) {
+                create();
+                if (!Checkpoint.restore(file, this)) {
+                    curPop = swarm.execute(config.runPSO); // nothing saved yet, start as begin does
+                    keep_best();
+                }
+            } else {
+                begin();
+            }
+            checkpoint = new Checkpoint(file, this);
+        } else {
+            begin();
+        }
+
+        if (config.pipeline) {
+            pipeline = new Pipeline(this);
+            pipeline.run();
+        } else {
+            long saved = System.nanoTime();
+            while (iteration < config.iterations && !termination.done()) {
+                step();
+                if (checkpoint != null) {
+                    reseed();
+                    if (System.nanoTime() - saved >= (long) (config.checkpoint_interval * 1e9)) {
+                        checkpoint.write();
+                        saved = System.nanoTime();
+                    }
+                }
+            }
+        }
+        if (checkpoint != null) {
+            checkpoint.write();
+            checkpoint.close();
+        }
+        end();
+        nanos = System.nanoTime() - start;
+        return this;
+    }
+
+    /**
+     * creates the swarm and the population and runs the first PSO phase
+     */
+    public void begin() {
+        create();
+        curPop = swarm.execute(config.runPSO); // execute PSO for runPSO times
+        keep_best(); // a budget may stop the run before its first step
+    }
+
+    /**
+     * takes the swarm's best into the run's if it is better
+     */
+    void keep_best() {
+        if (swarm.min < min_Val) {
+            min_Val = swarm.min;
+            min_pos = swarm.min_pos;
+        }
+    }
+
+    /**
+     * creates the swarm, with random particles, and the population
+     */
+    void create() {
+        Config c = config;
+        if (c.surrogate) // first, as it rejects its settings before anything is opened
+            surrogate = new Surrogate(c.dimensionality, c.surrogate_neighbors, c.surrogate_capacity,
+                    c.surrogate_fraction);
+        termination = new Termination(c, objective);
+        if (metrics == null && c.jmx) {
+            metrics = Metrics.register("run-" + System.identityHashCode(this));
+            registered = metrics;
+        }
+        if (metrics != null)
+            metrics.track(objective);
+        if (c.trace != null && trace == null)
+            trace = new Trace(Paths.get(c.trace), c.trace_capacity);
+        swarm = new Swarm(c.topology, c.size, objective, c.dimensionality, rng); // intialize swarm
+        swarm.storage = c.storage;
+        swarm.threads = c.threads;
+        swarm.async = c.async;
+        // alternating optimizers share one pool as they never run at once; the
+        // stages of a pipeline run together, so the GA gets a pool of its own.
+        // They still share the surrogate, and adding to its archive locks out
+        // the other stage's predictions.
+        pool = c.threads > 1 ? new ForkJoinPool(c.threads) : null;
+        ga_pool = c.threads > 1 && c.pipeline ? new ForkJoinPool(c.threads) : pool;
+        swarm.pool = pool;
+        swarm.termination = termination;
+        swarm.metrics = metrics;
+        swarm.trace = trace;
+        swarm.surrogate = surrogate;
+        swarm.swarm = swarm.generate_swarm(objective, c.topology); // initialize random particles
+
+        population = new GA(c.dimensionality, c.size, objective, c.ga_cross_prob, c.ga_mut_prob, c.shift, rng);
+        population.threads = c.threads;
+        population.screen = c.screen;
+        population.storage = c.storage;
+        population.pool = ga_pool;
+        population.termination = termination;
+        population.metrics = metrics;
+        population.trace = trace;
+        population.surrogate = surrogate;
+    }
+
+    /**
+     * Replaces every random stream of the run by a new one seeded from it,
+     * keeping the seeds. SplittableRandom does not expose its state, so a
+     * checkpointed run reseeds after every step; the seeds then stand for the
+     * whole random state, and a resumed run draws exactly what the original
+     * would have.
+     */
+    void reseed() {
+        Particle[] particles = swarm.swarm;
+        seeds = new long[particles.length + 2];
+        seeds[0] = swarm.reseed();
+        seeds[1] = population.reseed();
+        for (int i = 0; i < particles.length; i++) {
+            seeds[i + 2] = particles[i].rand.nextLong();
+            particles[i].rand = new SplittableRandom(seeds[i + 2]);
+        }
+    }
+
+    /**
+     * starts every random stream of the run from the given seeds, as kept by
+     * reseed
+     */
+    void reseed(long[] seeds) {
+        this.seeds = seeds;
+        swarm.reseed(seeds[0]);
+        population.reseed(seeds[1]);
+        for (int i = 0; i < swarm.swarm.length; i++)
+            swarm.swarm[i].rand = new SplittableRandom(seeds[i + 2]);
+    }
+
+    /**
+     * one iteration: a GA phase on the current individuals, then a PSO phase
+     * starting from the positions it returns
+     */
+    public void step() {
+        Config c = config;
+        // execute GA
+        double[][] curPositions = population.execute(c.runGA, c.crossover, c.selection, curPop);
+
+        // using the curPositions, update particles to be handed in to PSO
+        HandoffEvent event = FlightRecorder.isInitialized() ? new HandoffEvent() : null;
+        if (event != null)
+            event.begin();
+        for (int j = 0; j < c.size; j++)
+            System.arraycopy(curPositions[j], 0, swarm.getParticle(j).position, 0, c.dimensionality);
+        if (event != null && event.shouldCommit()) {
+            event.iteration = iteration;
+            event.individuals = c.size;
+            event.gaBest = Double.MAX_VALUE;
+            for (double f : population.last_fitness())
+                event.gaBest = Math.min(event.gaBest, f);
+            event.runBest = min_Val;
+            event.commit();
+        }
+
+        // execute PSO (now the particles' positions have been updated above)
+        curPop = swarm.execute(c.runPSO);
+        keep_best(); // keep track of best position and best evaluation
+        iteration++;
+    }
+
+    /**
+     * releases the threads, workers and MBean of the run and completes its
+     * trace
+     */
+    public void end() {
+        if (registered != null)
+            registered.close();
+        if (pool != null)
+            pool.shutdown();
+        if (ga_pool != null && ga_pool != pool)
+            ga_pool.shutdown();
+        if (remote != null)
+            remote.close();
+        if (trace != null)
+            trace.close();
+    }
+}
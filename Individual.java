@@ -5,18 +5,64 @@ import java.util.List;
 import java.util.Comparator;
 
 public class Individual {
-    double[] position;
+    double[] position; // may be shared with other individuals until written, see set
     double fitnessScore; // number of clauses satisfied
+    boolean dirty; // fitnessScore is out of date and must be evaluated before it is read
+    private boolean shared; // position may be referenced elsewhere, so it is copied before a write
 
     /**
      * Initializes an individual given the cnf caluses and an assignment of
      * boolean(0/1) values to each variable
      */
-    Individual(double[] position, String function) {
+    Individual(double[] position, ObjectiveFunction function) {
         this.position = position;
         calAndSetFitness(function);
     }
 
+    /**
+     * Initializes an individual whose fitness is evaluated later, when it is
+     * first read, e.g. as part of a batch of offspring
+     */
+    Individual(double[] position) {
+        this.position = position;
+        this.dirty = true;
+    }
+
+    /**
+     * Initializes an individual whose fitness at the given position is already
+     * known, so it is not evaluated again. The caller may keep the position,
+     * e.g. a particle's, so it is copied before the individual changes it.
+     */
+    Individual(double[] position, double fitnessScore) {
+        this.position = position;
+        this.fitnessScore = fitnessScore;
+        this.shared = true;
+    }
+
+    /**
+     * returns another individual with the same genome and fitness; the genome
+     * is copied only when one of them is changed
+     */
+    Individual share() {
+        shared = true;
+        Individual copy = new Individual(position, fitnessScore);
+        copy.dirty = dirty;
+        return copy;
+    }
+
+    /**
+     * sets variable v, copying the genome first if it is shared, and marks the
+     * fitness out of date
+     */
+    void set(int variable, double value) {
+        if (shared) {
+            position = position.clone();
+            shared = false;
+        }
+        position[variable] = value;
+        dirty = true;
+    }
+
     /**
      * For variable v, gets the value of v, which is stored at v-1 in the variable
      * assignment array
@@ -31,25 +77,23 @@ public class Individual {
      * that are satisfied, given the array of variable assignments stored as an
      * instance variable
      */
-    public void calAndSetFitness(String function) {
-        if (function.equals("ros")) {
-            this.fitnessScore = Main.eval_ros(position);
-        } else if (function.equals("ack")) {
-            this.fitnessScore = Main.eval_ack(position);
-        } else if (function.equals("ras")) {
-            this.fitnessScore = Main.eval_ras(position);
-        } else if (function.equals("zakh")) {
-            this.fitnessScore = Main.eval_zakh(position);
-        } else {
-            this.fitnessScore = Main.eval_styb(position);
-        }
+    public void calAndSetFitness(ObjectiveFunction function) {
+        this.fitnessScore = function.evaluate(position);
+        this.dirty = false;
     }
 
     public void setFitness(int fitnessScore) {
         this.fitnessScore = fitnessScore;
+        this.dirty = false;
     }
 
+    /**
+     * returns the fitness, which must not be out of date: a changed genome is
+     * evaluated first, e.g. by GA.evaluateDirty
+     */
     public Double getFitnessScore() {
+        if (dirty)
+            throw new IllegalStateException("fitness of a changed individual read before it was evaluated");
         return fitnessScore;
     }
 
@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Islands
+ *
+ * Island model of the hybrid: several HybridRuns, each on its own thread,
+ * that every migration_interval iterations send copies of their best
+ * individuals to other islands. Every ordered pair of islands has its own
+ * SpscRing, so migration never locks and never waits; an island takes in
+ * whatever has arrived when it next migrates, and migrants that find a full
+ * ring are dropped and counted. Islands therefore never wait for each other,
+ * which also means a seeded island run is not reproducible, as the arrival
+ * of migrants depends on timing.
+ *
+ * Migration topologies: "ring" sends to the next island, "full" to every
+ * other island and "random" to one other island drawn each time. Replacement
+ * policies: "worst" lets a migrant replace the worst individual if it is
+ * better, "random" lets it replace any individual but the best. A single
+ * island has nowhere to send migrants, and runs without migration.
+ *
+ * to run: java Islands <function> [islands] [seed]. With a seed, a master
+ * generator seeded with it draws the seed of every island and then splits
+ * the migration streams, so migration decisions are independent of every
+ * island's own streams.
+ *
+ * @author Mustafa Aydogdu
+ * @author Griffin Ott
+ * @author Evan Phillips
+ */
+public class Islands {
+
+    public final Config config;
+    public final HybridRun[] islands;
+    private final List<SpscRing<Individual>> channels; // from * islands + to, null on the diagonal
+    private final SplittableRandom[] rands; // each island's migration decisions
+
+    public Metrics metrics; // shared by the islands when config.jmx is set
+    public final LongAdder sent = new LongAdder();
+    public final LongAdder dropped = new LongAdder(); // migrants that found their ring full
+    public final LongAdder accepted = new LongAdder(); // migrants that replaced an individual
+
+    public double min_Val = Double.MAX_VALUE; // best value over all islands
+    public double[] min_pos;
+    public long nanos;
+
+    /**
+     * creates the islands of a configuration
+     *
+     * @throws IllegalArgumentException with no islands or a migration interval
+     *                                  below 1
+     */
+    public Islands(Config config) {
+        this.config = config.copy();
+        int n = this.config.islands;
+        if (n < 1)
+            throw new IllegalArgumentException("islands must be at least 1, not " + n);
+        if (this.config.migration_interval < 1)
+            throw new IllegalArgumentException(
+                    "migration_interval must be at least 1, not " + this.config.migration_interval);
+        Rng rng = this.config.seed == null ? new Rng() : new Rng(this.config.seed);
+        islands = new HybridRun[n];
+        rands = new SplittableRandom[n];
+        channels = new ArrayList<SpscRing<Individual>>(n * n);
+        for (int k = 0; k < n; k++) {
+            Config c = this.config.copy();
+            c.threads = 1; // an island is one core
+            if (c.seed != null)
+                c.seed = rng.split().nextLong();
+            if (c.trace != null) // one trace file per island
+                c.trace = c.trace + "." + k;
+            islands[k] = new HybridRun(c);
+            if (c.jmx) { // one MBean for all islands
+                if (metrics == null)
+                    metrics = Metrics.register("islands-" + System.identityHashCode(this));
+                islands[k].metrics = metrics;
+            }
+            for (int j = 0; j < n; j++) // room for a few migrations before the receiver catches up
+                channels.add(j == k ? null : new SpscRing<Individual>(4 * Math.max(1, this.config.migrants)));
+        }
+        for (int k = 0; k < n; k++)
+            rands[k] = rng.split();
+    }
+
+    /**
+     * runs every island on its own thread until each has done its iterations
+     */
+    public Islands run() throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        int n = islands.length;
+        ExecutorService executor = Executors.newFixedThreadPool(n);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int k = 0; k < n; k++) {
+                int island = k;
+                futures.add(executor.submit(() -> runIsland(island)));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+            if (metrics != null)
+                metrics.close();
+        }
+        for (HybridRun island : islands) {
+            if (island.min_Val < min_Val) {
+                min_Val = island.min_Val;
+                min_pos = island.min_pos;
+            }
+        }
+        nanos = System.nanoTime() - start;
+        return this;
+    }
+
+    private void runIsland(int k) {
+        HybridRun island = islands[k];
+        boolean migrating = islands.length > 1 && config.migrants > 0;
+        island.begin();
+        for (int i = 0; i < config.iterations && !island.termination.done(); i++) {
+            island.step();
+            if (migrating && (i + 1) % config.migration_interval == 0 && i + 1 < config.iterations) {
+                emigrate(k);
+                immigrate(k);
+            }
+        }
+        island.end();
+    }
+
+    /**
+     * offers copies of island k's best individuals to its destinations
+     */
+    private void emigrate(int k) {
+        ArrayList<Individual> pop = islands[k].curPop;
+        int[] best = bestIndices(pop, Math.min(config.migrants, pop.size()));
+        int n = islands.length;
+        if (config.migration_topology.equals("full")) {
+            for (int j = 0; j < n; j++) {
+                if (j != k)
+                    send(pop, best, k, j);
+            }
+        } else if (config.migration_topology.equals("random")) {
+            int j = rands[k].nextInt(n - 1);
+            send(pop, best, k, j >= k ? j + 1 : j);
+        } else {
+            send(pop, best, k, (k + 1) % n);
+        }
+    }
+
+    private void send(ArrayList<Individual> pop, int[] best, int from, int to) {
+        for (int b : best) {
+            Individual migrant = new Individual(pop.get(b).position.clone(), pop.get(b).fitnessScore);
+            if (channels.get(from * islands.length + to).offer(migrant))
+                sent.increment();
+            else
+                dropped.increment();
+        }
+    }
+
+    /**
+     * takes every migrant that has arrived at island k into its individuals
+     */
+    private void immigrate(int k) {
+        ArrayList<Individual> pop = islands[k].curPop;
+        for (int j = 0; j < islands.length; j++) {
+            if (j == k)
+                continue;
+            Individual migrant;
+            while ((migrant = channels.get(j * islands.length + k).poll()) != null) {
+                if (replace(pop, migrant, rands[k]))
+                    accepted.increment();
+            }
+        }
+    }
+
+    /**
+     * puts a migrant into a population according to the replacement policy,
+     * returning whether it was taken in
+     */
+    private boolean replace(ArrayList<Individual> pop, Individual migrant, SplittableRandom rand) {
+        int worst = 0;
+        int best = 0;
+        for (int i = 1; i < pop.size(); i++) {
+            if (pop.get(i).fitnessScore > pop.get(worst).fitnessScore)
+                worst = i;
+            if (pop.get(i).fitnessScore < pop.get(best).fitnessScore)
+                best = i;
+        }
+        if (config.replacement.equals("random")) {
+            if (pop.size() < 2)
+                return false;
+            int victim = rand.nextInt(pop.size() - 1);
+            pop.set(victim >= best ? victim + 1 : victim, migrant);
+            return true;
+        }
+        if (migrant.fitnessScore >= pop.get(worst).fitnessScore)
+            return false;
+        pop.set(worst, migrant);
+        return true;
+    }
+
+    /**
+     * indices of the count best individuals, best first
+     */
+    private static int[] bestIndices(ArrayList<Individual> pop, int count) {
+        int[] best = new int[count];
+        boolean[] taken = new boolean[pop.size()];
+        for (int b = 0; b < count; b++) {
+            int pick = -1;
+            for (int i = 0; i < pop.size(); i++) {
+                if (!taken[i] && (pick < 0 || pop.get(i).fitnessScore < pop.get(pick).fitnessScore))
+                    pick = i;
+            }
+            taken[pick] = true;
+            best[b] = pick;
+        }
+        return best;
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        if (args.length < 1 || args.length > 3) {
+            System.out.println("Usage: java Islands <function> [islands] [seed]");
+            return;
+        }
+        Config config = new Config();
+        config.function = args[0];
+        if (args.length > 1)
+            config.islands = Integer.parseInt(args[1]);
+        if (args.length > 2)
+            config.seed = Long.parseLong(args[2]);
+
+        Islands model = new Islands(config).run();
+
+        long evaluations = 0;
+        for (int k = 0; k < model.islands.length; k++) {
+            System.out.println("island " + k + ": " + model.islands[k].min_Val);
+            evaluations += model.islands[k].objective.getEvaluations();
+        }
+        System.out.println(model.min_Val);
+        System.out.println("evaluations: " + evaluations + " in " + String.format("%.2f", model.nanos / 1e9) + " s");
+        System.out.println("migrants sent: " + model.sent.sum() + ", dropped: " + model.dropped.sum()
+                + ", accepted: " + model.accepted.sum());
+    }
+}
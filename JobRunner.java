@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * JobRunner
+ *
+ * Executes many independent hybrid runs concurrently on a fixed thread pool
+ * and reports their results and the aggregate throughput in jobs per second.
+ * Each job runs single-threaded, so the pool size is the number of jobs in
+ * progress at once.
+ *
+ * to run: java JobRunner <function> <jobs> [threads] [seed], where job i is
+ * seeded with seed + i when a seed is given
+ *
+ * @author Mustafa Aydogdu
+ * @author Griffin Ott
+ * @author Evan Phillips
+ */
+public class JobRunner {
+
+    /**
+     * runs every configuration on a pool of the given number of threads and
+     * returns the finished runs in the order of configs
+     */
+    public static List<HybridRun> runAll(List<Config> configs, int threads)
+            throws InterruptedException, ExecutionException {
+        List<HybridRun> runs = new ArrayList<HybridRun>(Collections.nCopies(configs.size(), (HybridRun) null));
+        runAll(configs, threads, (run, index) -> runs.set(index, run));
+        return runs;
+    }
+
+    /**
+     * runs every configuration on a pool of the given number of threads,
+     * handing each run and its index in configs to finished, on the calling
+     * thread, as soon as it completes; no run is kept once handed on
+     */
+    public static void runAll(List<Config> configs, int threads, ObjIntConsumer<HybridRun> finished)
+            throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Metrics metrics = null;
+        try {
+            CompletionService<Integer> completed = new ExecutorCompletionService<Integer>(executor);
+            HybridRun[] runs = new HybridRun[configs.size()]; // finished runs not yet handed on
+            for (int i = 0; i < runs.length; i++) {
+                HybridRun job = new HybridRun(configs.get(i));
+                if (job.config.jmx) { // one MBean for the whole batch
+                    if (metrics == null)
+                        metrics = Metrics.register("jobs-" + System.identityHashCode(runs));
+                    job.metrics = metrics;
+                }
+                int index = i;
+                completed.submit(() -> {
+                    runs[index] = job.run();
+                    return index;
+                });
+            }
+            for (int i = 0; i < runs.length; i++) {
+                int index = completed.take().get(); // also makes runs[index] visible here
+                HybridRun run = runs[index];
+                runs[index] = null;
+                finished.accept(run, index);
+            }
+        } finally {
+            executor.shutdownNow();
+            if (metrics != null)
+                metrics.close();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        if (args.length < 2 || args.length > 4) {
+            System.out.println("Usage: java JobRunner <function> <jobs> [threads] [seed]");
+            return;
+        }
+        int jobs = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        List<Config> configs = new ArrayList<Config>();
+        for (int i = 0; i < jobs; i++) {
+            Config config = new Config();
+            config.function = args[0];
+            if (args.length > 3)
+                config.seed = Long.parseLong(args[3]) + i;
+            configs.add(config);
+        }
+
+        long start = System.nanoTime();
+        List<HybridRun> runs = runAll(configs, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double best = Double.MAX_VALUE;
+        long evaluations = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            HybridRun run = runs.get(i);
+            System.out.println("job " + i + ": " + run.min_Val + " in " + String.format("%.2f", run.nanos / 1e9) + " s");
+            best = Math.min(best, run.min_Val);
+            evaluations += run.objective.getEvaluations();
+        }
+        System.out.println("best: " + best);
+        System.out.println(jobs + " jobs on " + threads + " threads in " + String.format("%.2f", seconds) + " s: "
+                + String.format("%.2f", jobs / seconds) + " jobs/sec, "
+                + String.format("%.0f", evaluations / seconds) + " evaluations/sec");
+    }
+}
@@ -0,0 +1,229 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics
+ *
+ * Live telemetry of one or more runs, published as a JMX MBean. The swarm and
+ * the GA record one entry per execute call: its duration, the bytes the
+ * calling thread allocated, the particles moved or individuals bred, and
+ * whether it improved the best value. Every counter is a LongAdder or an
+ * atomic, so runs on many threads can share one Metrics without locking.
+ * Evaluations are not counted here at all: the objectives' own counters are
+ * summed when a scraper reads them, so the evaluation path pays nothing.
+ * Closing registered metrics unregisters the MBean.
+ */
+public class Metrics implements MetricsMBean, AutoCloseable {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION = THREADS instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported();
+
+    private final CopyOnWriteArrayList<CountingObjective> objectives = new CopyOnWriteArrayList<CountingObjective>();
+    private final AtomicLong best = new AtomicLong(Double.doubleToLongBits(Double.MAX_VALUE));
+    private final LongAdder pso_nanos = new LongAdder();
+    private final LongAdder ga_nanos = new LongAdder();
+    private final LongAdder pso_phases = new LongAdder();
+    private final LongAdder ga_phases = new LongAdder();
+    private final LongAdder pso_improvements = new LongAdder();
+    private final LongAdder ga_improvements = new LongAdder();
+    private final LongAdder particles_moved = new LongAdder();
+    private final LongAdder individuals_bred = new LongAdder();
+    private final LongAdder pso_bytes = new LongAdder();
+    private final LongAdder ga_bytes = new LongAdder();
+
+    // last sample of the evaluation rate, only touched by scrapers
+    private long sample_time = System.nanoTime();
+    private long sample_evaluations;
+    private double rate;
+
+    private ObjectName name; // set while registered
+
+    /**
+     * creates metrics and registers them with the platform MBean server as
+     * GAPSO:type=Metrics,name=name
+     */
+    public static Metrics register(String name) {
+        Metrics metrics = new Metrics();
+        try {
+            ObjectName object = new ObjectName("GAPSO:type=Metrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, object);
+            metrics.name = object;
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register metrics " + name, e);
+        }
+        return metrics;
+    }
+
+    /**
+     * unregisters the MBean of metrics created by register; the counters stay
+     * readable
+     */
+    @Override
+    public synchronized void close() {
+        if (name == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister metrics " + name, e);
+        } finally {
+            name = null;
+        }
+    }
+
+    /**
+     * counts the evaluations of an objective in getEvaluations
+     */
+    public void track(CountingObjective objective) {
+        objectives.add(objective);
+    }
+
+    /**
+     * records one Swarm.execute call; best is the swarm's best value after it
+     */
+    public void psoPhase(long nanos, long bytes, long moved, double best) {
+        pso_nanos.add(nanos);
+        pso_bytes.add(bytes);
+        pso_phases.increment();
+        particles_moved.add(moved);
+        if (offer(best))
+            pso_improvements.increment();
+    }
+
+    /**
+     * records one GA.execute call; best is the best value it evaluated
+     * exactly, as reported to Termination
+     */
+    public void gaPhase(long nanos, long bytes, long bred, double best) {
+        ga_nanos.add(nanos);
+        ga_bytes.add(bytes);
+        ga_phases.increment();
+        individuals_bred.add(bred);
+        if (offer(best))
+            ga_improvements.increment();
+    }
+
+    /**
+     * lowers the best value to value, returning whether it did
+     */
+    private boolean offer(double value) {
+        long current;
+        do {
+            current = best.get();
+            if (!(value < Double.longBitsToDouble(current)))
+                return false;
+        } while (!best.compareAndSet(current, Double.doubleToLongBits(value)));
+        return true;
+    }
+
+    /**
+     * bytes allocated so far by the current thread, 0 where the JVM does not
+     * measure it
+     */
+    public static long allocatedBytes() {
+        return ALLOCATION ? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(
+                Thread.currentThread().getId()) : 0;
+    }
+
+    @Override
+    public long getEvaluations() {
+        long sum = 0;
+        for (CountingObjective objective : objectives)
+            sum += objective.getEvaluations();
+        return sum;
+    }
+
+    /**
+     * evaluations per second since the previous sample, resampled at most once
+     * a second so that several scrapers see the same rate
+     */
+    @Override
+    public synchronized double getEvaluationsPerSecond() {
+        long now = System.nanoTime();
+        if (now - sample_time >= 1_000_000_000L) {
+            long evaluations = getEvaluations();
+            rate = (evaluations - sample_evaluations) * 1e9 / (now - sample_time);
+            sample_time = now;
+            sample_evaluations = evaluations;
+        }
+        return rate;
+    }
+
+    @Override
+    public double getBestValue() {
+        return Double.longBitsToDouble(best.get());
+    }
+
+    @Override
+    public double getPsoSeconds() {
+        return pso_nanos.sum() / 1e9;
+    }
+
+    @Override
+    public double getGaSeconds() {
+        return ga_nanos.sum() / 1e9;
+    }
+
+    @Override
+    public long getPsoPhases() {
+        return pso_phases.sum();
+    }
+
+    @Override
+    public long getGaPhases() {
+        return ga_phases.sum();
+    }
+
+    @Override
+    public long getPsoImprovements() {
+        return pso_improvements.sum();
+    }
+
+    @Override
+    public long getGaImprovements() {
+        return ga_improvements.sum();
+    }
+
+    @Override
+    public long getParticlesMoved() {
+        return particles_moved.sum();
+    }
+
+    @Override
+    public long getIndividualsBred() {
+        return individuals_bred.sum();
+    }
+
+    @Override
+    public long getPsoAllocatedBytes() {
+        return pso_bytes.sum();
+    }
+
+    @Override
+    public long getGaAllocatedBytes() {
+        return ga_bytes.sum();
+    }
+
+    @Override
+    public long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    @Override
+    public double getGcSeconds() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(0, gc.getCollectionTime());
+        return millis / 1e3;
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * MetricsMBean
+ *
+ * Management interface of Metrics, as seen from JConsole or a JMX scraper.
+ * Counters are cumulative since the metrics were created.
+ */
+public interface MetricsMBean {
+
+    long getEvaluations();
+
+    double getEvaluationsPerSecond();
+
+    double getBestValue();
+
+    double getPsoSeconds();
+
+    double getGaSeconds();
+
+    long getPsoPhases();
+
+    long getGaPhases();
+
+    long getPsoImprovements();
+
+    long getGaImprovements();
+
+    long getParticlesMoved();
+
+    long getIndividualsBred();
+
+    long getPsoAllocatedBytes();
+
+    long getGaAllocatedBytes();
+
+    long getGcCount();
+
+    double getGcSeconds();
+}
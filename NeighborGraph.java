@@ -0,0 +1,141 @@
+import java.util.SplittableRandom;
+
+/**
+ * NeighborGraph
+ *
+ * Neighborhoods of a swarm as particle indices in compressed sparse row form:
+ * the neighbors of particle i are targets[offsets[i]] to
+ * targets[offsets[i + 1] - 1]. The global topology is not stored, as every
+ * neighborhood is the whole swarm.
+ *
+ * @author Mustafa Aydogdu
+ * @author Griffin Ott
+ * @author Evan Phillips
+ */
+public class NeighborGraph {
+
+    public static final int RA_K = 5; // neighborhood size of the random topology, itself included
+
+    public final int size;
+    public final boolean global;
+    final int[] offsets;
+    final int[] targets;
+
+    private NeighborGraph(int size, boolean global, int degree) {
+        this.size = size;
+        this.global = global;
+        this.offsets = new int[size + 1];
+        this.targets = new int[global ? 0 : size * degree];
+        for (int i = 0; i <= size; i++)
+            offsets[i] = global ? 0 : i * degree;
+    }
+
+    /**
+     * builds the graph of a topology: "gl" global, "ri" ring, "ra" random, and
+     * von Neumann otherwise
+     */
+    public static NeighborGraph create(String topology, int n, SplittableRandom rand) {
+        if (topology.equals("gl"))
+            return new NeighborGraph(n, true, 0);
+        else if (topology.equals("ri"))
+            return ring(n);
+        else if (topology.equals("ra"))
+            return random(n, rand);
+        else
+            return vonNeumann(n);
+    }
+
+    /**
+     * each particle, in the order left neighbor, itself, right neighbor, with
+     * the ends of the swarm joined
+     */
+    static NeighborGraph ring(int n) {
+        NeighborGraph g = new NeighborGraph(n, false, 3);
+        for (int i = 0; i < n; i++) {
+            g.targets[3 * i] = (i + n - 1) % n;
+            g.targets[3 * i + 1] = i;
+            g.targets[3 * i + 2] = (i + 1) % n;
+        }
+        return g;
+    }
+
+    /**
+     * each particle itself followed by RA_K - 1 distinct random others
+     */
+    static NeighborGraph random(int n, SplittableRandom rand) {
+        NeighborGraph g = new NeighborGraph(n, false, Math.min(RA_K, n));
+        for (int i = 0; i < n; i++)
+            g.resample(i, rand);
+        return g;
+    }
+
+    /**
+     * Particles laid out row by row on a toroidal grid, each with itself and the
+     * particles above, below, left and right of it. The grid is rows x n / rows
+     * for the largest divisor rows of n up to sqrt(n). When n has no divisor
+     * that gives a reasonably square grid, the particles instead fill rows of
+     * ceil(sqrt(n)) in one wrapped sequence, so up and down are cols positions
+     * away and left and right are the adjacent positions.
+     */
+    static NeighborGraph vonNeumann(int n) {
+        NeighborGraph g = new NeighborGraph(n, false, 5);
+        int rows = (int) Math.sqrt(n);
+        while (n % rows != 0)
+            rows--;
+        boolean grid = 2 * rows * rows >= n;
+        int cols = grid ? n / rows : (int) Math.ceil(Math.sqrt(n));
+        for (int p = 0; p < n; p++) {
+            int base = 5 * p;
+            g.targets[base] = p; // a particle is its own neighbor
+            g.targets[base + 1] = ((p - cols) % n + n) % n; // above
+            g.targets[base + 2] = (p + cols) % n; // below
+            if (grid) {
+                int i = p / cols;
+                int j = p % cols;
+                g.targets[base + 3] = i * cols + (j + cols - 1) % cols; // left
+                g.targets[base + 4] = i * cols + (j + 1) % cols; // right
+            } else {
+                g.targets[base + 3] = (p + n - 1) % n;
+                g.targets[base + 4] = (p + 1) % n;
+            }
+        }
+        return g;
+    }
+
+    public int start(int i) {
+        return offsets[i];
+    }
+
+    public int end(int i) {
+        return offsets[i + 1];
+    }
+
+    public int neighbor(int slot) {
+        return targets[slot];
+    }
+
+    /**
+     * redraws the neighborhood of particle v in the random topology: v itself
+     * followed by distinct random others. Each draw is rejected only if it
+     * repeats one of the k already chosen, so this takes O(k) expected time
+     * when k is small relative to the swarm.
+     */
+    public void resample(int v, SplittableRandom rand) {
+        int base = offsets[v];
+        int k = offsets[v + 1] - base;
+        targets[base] = v;
+        for (int j = 1; j < k; j++) {
+            int candidate;
+            boolean taken;
+            do {
+                candidate = rand.nextInt(size);
+                taken = false;
+                for (int m = 0; m < j; m++) {
+                    if (targets[base + m] == candidate)
+                        taken = true;
+                }
+            } while (taken);
+            targets[base + j] = candidate;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * ObjectiveFunction
+ *
+ * A function to be minimized, together with the ranges used to scatter the
+ * initial swarm across its solution space
+ */
+public interface ObjectiveFunction {
+
+    /**
+     * returns the value of the function at the d coordinates of pos starting at
+     * index off
+     */
+    double evaluate(double[] pos, int off, int d);
+
+    /**
+     * returns the value of the function at a given position
+     */
+    default double evaluate(double[] pos) {
+        return evaluate(pos, 0, pos.length);
+    }
+
+    /**
+     * evaluates every row of positions, storing the value of row i in out[i]
+     */
+    default void evaluate(double[][] positions, double[] out) {
+        for (int i = 0; i < positions.length; i++)
+            out[i] = evaluate(positions[i], 0, positions[i].length);
+    }
+
+    /**
+     * evaluates a flat row-major matrix of positions with d coordinates per row,
+     * storing the value of row i in out[i]
+     */
+    default void evaluate(double[] positions, int d, double[] out) {
+        evaluate(positions, 0, positions.length / d, d, out);
+    }
+
+    /**
+     * evaluates the n rows from row on of a flat row-major matrix of positions
+     * with d coordinates per row, storing the value of row i in out[i]
+     */
+    default void evaluate(double[] positions, int row, int n, int d, double[] out) {
+        for (int i = row; i < row + n; i++)
+            out[i] = evaluate(positions, i * d, d);
+    }
+
+    /**
+     * whether approximate is cheaper than evaluate, so that screening with it
+     * saves work
+     */
+    default boolean hasApproximation() {
+        return false;
+    }
+
+    /**
+     * returns a cheap estimate of the function at the d coordinates of pos
+     * starting at index off, within getApproximationError of the exact value
+     */
+    default double approximate(double[] pos, int off, int d) {
+        return evaluate(pos, off, d);
+    }
+
+    /**
+     * returns a bound on the difference between approximate and evaluate for a
+     * position of d coordinates whose approximate value is approx
+     */
+    default double getApproximationError(double approx, int d) {
+        return 0.0;
+    }
+
+    // range the initial positions are drawn from
+    double getMinPosition();
+
+    double getMaxPosition();
+
+    // range the initial velocities are drawn from
+    default double getMinVelocity() {
+        return -2.0;
+    }
+
+    default double getMaxVelocity() {
+        return 4.0;
+    }
+
+    /**
+     * returns the function for a command-line name, defaulting to
+     * Styblinski-Tang like the original string dispatch
+     */
+    static ObjectiveFunction forName(String function) {
+        if (function.equals("ros"))
+            return new Rosenbrock();
+        else if (function.equals("ack"))
+            return new Ackley();
+        else if (function.equals("ras"))
+            return new Rastrigin();
+        else if (function.equals("zakh"))
+            return new Zakharov();
+        else
+            return new StyblinskiTang();
+    }
+
+    /**
+     * returns the SIMD version of a built-in function when the
+     * jdk.incubator.vector module is available, and the function itself
+     * otherwise
+     */
+    static ObjectiveFunction vectorized(ObjectiveFunction function) {
+        try {
+            Object vector = Class.forName("VectorObjective").getMethod("wrap", ObjectiveFunction.class)
+                    .invoke(null, function);
+            if (vector != null)
+                return (ObjectiveFunction) vector;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // compiled or launched without the module: keep the scalar function
+        }
+        return function;
+    }
+}
@@ -1,4 +1,5 @@
-import java.util.Random;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * Particle
@@ -15,18 +16,31 @@ public class Particle {
     public double[] velocity;
     public double[] position;
     public Particle[] neighbors;
-    private static double CONSTRICTION_FACTOR = 0.7298;
-    private static double PHI = 2.05;
-    private double best_val = Double.MAX_VALUE;
+    int index; // slot of this particle in the swarm's contiguous storage
+    static double CONSTRICTION_FACTOR = 0.7298;
+    static double PHI = 2.05;
+    SplittableRandom rand; // this particle's own stream
+    private final ObjectiveFunction function;
+    private double best_val = Double.MAX_VALUE; // value of pbest
+    private double gbest_val; // value of gbest
+    private double position_val; // value of position when last evaluated
+    // pbest followed by its value, for neighbors moving on other threads in
+    // the asynchronous swarm; replaced, never changed, so it is safely read
+    // without locking
+    private volatile double[] published;
 
     /**
      * Initializes an instance of a Particle object
      *
      * @param position the position of a given particle in d dimensions
      * @param velocity the velocity of a given particle in d dimensions
+     * @param function the function the particle's positions are evaluated with
+     * @param rand     the particle's own random stream
      */
 
-    public Particle(double[] position, double[] velocity) {
+    public Particle(double[] position, double[] velocity, ObjectiveFunction function, SplittableRandom rand) {
+        this.function = function;
+        this.rand = rand;
         int d = position.length;
         this.pbest = new double[d];
         this.gbest = new double[d];
@@ -41,6 +55,7 @@ public class Particle {
             this.velocity[i] = velocity[i];
         }
         set_pbest();
+        gbest_val = best_val;
     }
 
     public void set_neighbors(Particle[] neighbors) {
@@ -55,141 +70,122 @@ public class Particle {
         return pbest;
     }
 
+    public double[] getGbest() {
+        return gbest;
+    }
+
+    public double getGbestVal() {
+        return gbest_val;
+    }
+
+    public double getPositionVal() {
+        return position_val;
+    }
+
+    void setBestVal(double best_val) {
+        this.best_val = best_val;
+    }
+
+    void setGbestVal(double gbest_val) {
+        this.gbest_val = gbest_val;
+    }
+
+    void setPositionVal(double position_val) {
+        this.position_val = position_val;
+    }
+
     /**
      * Sets the personal for a given particle with the assumption that we are
-     * searching for a minimum
+     * searching for a minimum. The current position is evaluated once and its
+     * value is kept with the position and, on improvement, with pbest.
      */
     public void set_pbest() {
-        if (Swarm.function.equals("ros")) {
-            if (Main.eval_ros(position) < this.best_val) {
-                for (int i = 0; i < Swarm.dim; i++)
-                    pbest[i] = position[i];
-                best_val = Main.eval_ros(position);
-            }
-        }
-
-        else if (Swarm.function.equals("ack")) {
-            if (Main.eval_ack(position) < this.best_val) {
-                for (int i = 0; i < Swarm.dim; i++)
-                    pbest[i] = position[i];
-                best_val = Main.eval_ack(position);
-            }
-        }
-
-        else if (Swarm.function.equals("ras")) {
-            if (Main.eval_ras(position) < this.best_val) {
-                for (int i = 0; i < Swarm.dim; i++)
-                    pbest[i] = position[i];
-                best_val = Main.eval_ras(position);
-            }
-        }
-
-        else if (Swarm.function.equals("zakh")) {
-            if (Main.eval_zakh(position) < this.best_val) {
-                for (int i = 0; i < Swarm.dim; i++)
-                    pbest[i] = position[i];
-                best_val = Main.eval_zakh(position);
-            }
-        }
+        update_pbest(function.evaluate(position));
+    }
 
-        else {
-            if (Main.eval_styb(position) < this.best_val) {
-                for (int i = 0; i < Swarm.dim; i++)
-                    pbest[i] = position[i];
-                best_val = Main.eval_styb(position);
-            }
+    /**
+     * set_pbest with the value of the current position already known
+     */
+    void update_pbest(double position_val) {
+        this.position_val = position_val;
+        if (position_val < this.best_val) {
+            for (int i = 0; i < position.length; i++)
+                pbest[i] = position[i];
+            best_val = position_val;
         }
-
     }
 
-    public void set_gbest_global(double[] gbest) {
+    public void set_gbest_global(double[] gbest, double gbest_val) {
         this.gbest = gbest;
+        this.gbest_val = gbest_val;
     }
 
     /**
      * Sets the group best for a given neighborhood with the assumption that we are
-     * searching for a minimum
+     * searching for a minimum. Uses the cached values of the neighbors' pbests
+     * rather than evaluating them again.
      */
     public void set_gbest() {
-        if (Swarm.function.equals("ros")) {
-            for (Particle particle : this.neighbors) {
-                if (Main.eval_ros(particle.pbest) < Main.eval_ros(gbest)) {
-                    for (int i = 0; i < Swarm.dim; i++)
-                        gbest[i] = particle.pbest[i];
-                }
-            }
-        } else if (Swarm.function.equals("ack")) {
-            for (Particle particle : this.neighbors) {
-                if (Main.eval_ack(particle.pbest) < Main.eval_ack(gbest)) {
-                    for (int i = 0; i < Swarm.dim; i++)
-                        gbest[i] = particle.pbest[i];
-                }
-            }
-        } else if (Swarm.function.equals("ras")) {
-            for (Particle particle : this.neighbors) {
-                if (Main.eval_ras(particle.pbest) < Main.eval_ras(gbest)) {
-                    for (int i = 0; i < Swarm.dim; i++)
-                        gbest[i] = particle.pbest[i];
-                }
-            }
-        }
-
-        else if (Swarm.function.equals("zakh")) {
-            for (Particle particle : this.neighbors) {
-                if (Main.eval_zakh(particle.pbest) < Main.eval_zakh(gbest)) {
-                    for (int i = 0; i < Swarm.dim; i++)
-                        gbest[i] = particle.pbest[i];
-                }
-            }
+        for (Particle particle : this.neighbors) {
+            offer_gbest(particle);
         }
+    }
 
-        else {
-            for (Particle particle : this.neighbors) {
-                if (Main.eval_styb(particle.pbest) < Main.eval_styb(gbest)) {
-                    for (int i = 0; i < Swarm.dim; i++)
-                        gbest[i] = particle.pbest[i];
-                }
-            }
+    /**
+     * takes another particle's pbest as gbest if it is better
+     */
+    public void offer_gbest(Particle particle) {
+        if (particle.best_val < gbest_val) {
+            for (int i = 0; i < position.length; i++)
+                gbest[i] = particle.pbest[i];
+            gbest_val = particle.best_val;
         }
-
     }
 
     /**
-     * updates the velocity and the position of a given particle
+     * publishes a snapshot of pbest and its value, see published
      */
-    public void update_velocity_position() {
-
-        Random rand = new Random();
-
-        // generate u1 and u2
-        double[] u1 = new double[Swarm.dim];
-        double[] u2 = new double[Swarm.dim];
-        for (int i = 0; i < Swarm.dim; i++) {
-            double entry = rand.nextDouble() * PHI;
-            u1[i] = entry;
-            entry = rand.nextDouble() * PHI;
-            u2[i] = entry;
-        }
+    void publish() {
+        double[] snapshot = Arrays.copyOf(pbest, pbest.length + 1);
+        snapshot[pbest.length] = best_val;
+        published = snapshot;
+    }
 
-        // get the term for pbest influence
-        double[] pbest_influence = new double[Swarm.dim];
-        for (int i = 0; i < Swarm.dim; i++) {
-            pbest_influence[i] = u1[i] * (pbest[i] - position[i]);
-        }
+    double[] published() {
+        return published;
+    }
 
-        // get the term for gbest influence
-        double[] gbest_influence = new double[Swarm.dim];
-        for (int i = 0; i < Swarm.dim; i++) {
-            gbest_influence[i] = u2[i] * (gbest[i] - position[i]);
+    /**
+     * takes a published pbest as gbest if it is better; gbest must not be
+     * shared with other particles
+     */
+    void offer_published(double[] snapshot) {
+        int d = position.length;
+        if (snapshot != null && snapshot[d] < gbest_val) {
+            System.arraycopy(snapshot, 0, gbest, 0, d);
+            gbest_val = snapshot[d];
         }
+    }
 
-        // update velocity
-        for (int i = 0; i < Swarm.dim; i++) {
-            velocity[i] = CONSTRICTION_FACTOR * (velocity[i] + pbest_influence[i] + gbest_influence[i]);
-        }
+    /**
+     * gives the particle its own copy of gbest, which set_gbest_global shares
+     */
+    void own_gbest() {
+        gbest = gbest.clone();
+    }
 
-        // update position
-        for (int i = 0; i < Swarm.dim; i++) {
+    /**
+     * updates the velocity and the position of a given particle
+     */
+    public void update_velocity_position() {
+        // u1 and u2 are drawn per coordinate and applied immediately, so no
+        // temporary vectors are needed
+        for (int i = 0; i < position.length; i++) {
+            double u1 = rand.nextDouble() * PHI;
+            double u2 = rand.nextDouble() * PHI;
+            double pbest_influence = u1 * (pbest[i] - position[i]);
+            double gbest_influence = u2 * (gbest[i] - position[i]);
+            velocity[i] = CONSTRICTION_FACTOR * (velocity[i] + pbest_influence + gbest_influence);
             position[i] = position[i] + velocity[i];
         }
 
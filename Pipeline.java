@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pipeline
+ *
+ * Pipelined mode of a HybridRun: instead of alternating, the GA and the swarm
+ * run at the same time on their own threads for the configured number of
+ * phases each. After every phase each side sends copies of its handoff best
+ * individuals to the other through an SpscRing and takes in whatever the
+ * other has sent: the GA's offspring replace the swarm's worst particles'
+ * positions, and the particles' positions replace the worst individuals of
+ * the GA's breeding population. Neither side waits for the other; an
+ * individual that finds its ring full is dropped and counted.
+ *
+ * As the exchange depends on timing, a seeded pipelined run is not
+ * reproducible.
+ *
+ * @author Mustafa Aydogdu
+ * @author Griffin Ott
+ * @author Evan Phillips
+ */
+public class Pipeline {
+
+    private final HybridRun run;
+    private final SpscRing<Individual> to_pso;
+    private final SpscRing<Individual> to_ga;
+    private volatile Throwable failure;
+
+    public final LongAdder handed_to_pso = new LongAdder();
+    public final LongAdder handed_to_ga = new LongAdder();
+    public final LongAdder dropped = new LongAdder();
+
+    /**
+     * a pipeline over a run whose swarm and population have been created by
+     * HybridRun.begin
+     */
+    public Pipeline(HybridRun run) {
+        this.run = run;
+        // room for a few phases of the faster side before the slower one catches up
+        int capacity = 4 * Math.max(1, run.config.handoff);
+        to_pso = new SpscRing<Individual>(capacity);
+        to_ga = new SpscRing<Individual>(capacity);
+    }
+
+    /**
+     * runs the GA on a second thread and the swarm on this one until both have
+     * done their phases
+     */
+    public void run() {
+        Thread ga = new Thread(() -> {
+            try {
+                runGA();
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }, "pipeline-ga");
+        ga.start();
+        runPSO();
+        try {
+            ga.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null)
+            throw new IllegalStateException("GA thread failed", failure);
+    }
+
+    private void runGA() {
+        Config c = run.config;
+        GA population = run.population;
+        ArrayList<Individual> curGen = new ArrayList<Individual>(run.curPop.size());
+        for (Individual ind : run.curPop) // the swarm keeps running on the originals
+            curGen.add(new Individual(ind.position.clone(), ind.fitnessScore));
+
+        for (int i = 0; i < c.iterations && !run.termination.done(); i++) {
+            double[][] positions = population.execute(c.runGA, c.crossover, c.selection, curGen);
+            double[] fitness = population.last_fitness(); // the handoff is picked by fitness
+            curGen = new ArrayList<Individual>(positions.length);
+            for (int j = 0; j < positions.length; j++)
+                curGen.add(new Individual(positions[j], fitness[j]));
+
+            send(curGen, to_pso, handed_to_pso);
+            Individual in;
+            while ((in = to_ga.poll()) != null) {
+                int worst = worst(curGen);
+                if (in.fitnessScore < curGen.get(worst).fitnessScore)
+                    curGen.set(worst, in);
+            }
+        }
+    }
+
+    private void runPSO() {
+        Config c = run.config;
+        Swarm swarm = run.swarm;
+        for (int i = 0; i < c.iterations && !run.termination.done(); i++) {
+            ArrayList<Individual> pop = swarm.execute(c.runPSO);
+            run.keep_best();
+
+            send(pop, to_ga, handed_to_ga);
+            Individual in;
+            while ((in = to_pso.poll()) != null) {
+                int worst = worst(pop);
+                if (in.fitnessScore < pop.get(worst).fitnessScore) {
+                    // the particle moves from the new position; its pbest and gbest stay
+                    Particle p = swarm.getParticle(worst);
+                    System.arraycopy(in.position, 0, p.position, 0, c.dimensionality);
+                    p.setPositionVal(in.fitnessScore);
+                    pop.set(worst, new Individual(p.position, in.fitnessScore));
+                }
+            }
+        }
+    }
+
+    /**
+     * offers copies of the handoff best individuals of a population to a ring
+     */
+    private void send(ArrayList<Individual> pop, SpscRing<Individual> ring, LongAdder handed) {
+        int count = Math.min(run.config.handoff, pop.size());
+        boolean[] taken = new boolean[pop.size()];
+        for (int b = 0; b < count; b++) {
+            int pick = -1;
+            for (int i = 0; i < pop.size(); i++) {
+                if (!taken[i] && (pick < 0 || pop.get(i).fitnessScore < pop.get(pick).fitnessScore))
+                    pick = i;
+            }
+            taken[pick] = true;
+            if (ring.offer(new Individual(pop.get(pick).position.clone(), pop.get(pick).fitnessScore)))
+                handed.increment();
+            else
+                dropped.increment();
+        }
+    }
+
+    private static int worst(ArrayList<Individual> pop) {
+        int worst = 0;
+        for (int i = 1; i < pop.size(); i++) {
+            if (pop.get(i).fitnessScore > pop.get(worst).fitnessScore)
+                worst = i;
+        }
+        return worst;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Rastrigin
+ *
+ * minimum is 0.0, which occurs at (0.0,...,0.0)
+ */
+public class Rastrigin implements ObjectiveFunction {
+
+    @Override
+    public double evaluate(double[] pos, int off, int d) {
+        double sum = 0.0;
+        for (int i = off; i < off + d; i++) {
+            sum += pos[i] * pos[i] - 10.0 * Math.cos(2.0 * Math.PI * pos[i]) + 10.0;
+        }
+        return sum;
+    }
+
+    @Override
+    public boolean hasApproximation() {
+        return true;
+    }
+
+    /**
+     * float-precision terms with a polynomial cosine in place of Math.cos
+     */
+    @Override
+    public double approximate(double[] pos, int off, int d) {
+        double sum = 0.0;
+        for (int i = off; i < off + d; i++) {
+            float x = (float) pos[i];
+            sum += x * x - 10.0f * approxCos2pi(pos[i]) + 10.0f;
+        }
+        return sum;
+    }
+
+    /**
+     * each term is off by at most 10 times the cosine error plus float rounding,
+     * and the squares by a relative 2^-23, while approx bounds their sum
+     */
+    @Override
+    public double getApproximationError(double approx, int d) {
+        return d * 5e-4 + 1e-6 * Math.abs(approx);
+    }
+
+    /**
+     * cos(2 * pi * x) to within 3e-5. x is reduced to t = x - round(x) in double,
+     * folded to r in [0, 1/4] using cos(2 pi t) = -cos(2 pi (1/2 - |t|)), and
+     * cos(2 pi r) is taken from its Taylor polynomial up to the 8th power in float.
+     */
+    static float approxCos2pi(double x) {
+        float t = Math.abs((float) (x - Math.rint(x)));
+        boolean far = t > 0.25f;
+        float z = (float) (2.0 * Math.PI) * (far ? 0.5f - t : t);
+        float z2 = z * z;
+        float c = 1.0f + z2 * (-1.0f / 2 + z2 * (1.0f / 24 + z2 * (-1.0f / 720 + z2 * (1.0f / 40320))));
+        return far ? -c : c;
+    }
+
+    @Override
+    public double getMinPosition() {
+        return 2.56;
+    }
+
+    @Override
+    public double getMaxPosition() {
+        return 5.12;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * RemoteCheck
+ *
+ * Test of evaluation in worker processes: small seeded runs are made once with
+ * the objective evaluated by stand-in Workers and once in this process with
+ * the same scalar function, for both storages, one and two threads, and with
+ * and without a surrogate. Screening is not checked, as a worker offers no
+ * approximation. The runs must find the same best value with
+ * the same number of evaluations, and the workers must have been sent
+ * batches, not one position per request. The first failure is reported and
+ * the check exits with status 1.
+ *
+ * to run: java RemoteCheck
+ */
+public class RemoteCheck {
+
+    public static void main(String[] args) {
+        int checked = 0;
+        for (String storage : new String[] { "soa", "obj" }) {
+            for (int threads = 1; threads <= 2; threads++) {
+                for (String mode : new String[] { "exact", "surrogate" }) {
+                    Config c = new Config();
+                    c.function = "ras";
+                    c.seed = 7L;
+                    c.iterations = 3;
+                    c.runPSO = 20;
+                    c.runGA = 10;
+                    c.storage = storage;
+                    c.threads = threads;
+                    c.vector = false; // the Worker evaluates the scalar function
+                    c.surrogate = mode.equals("surrogate");
+                    String label = storage + ", " + threads + " threads, " + mode;
+
+                    HybridRun local = new HybridRun(c).run();
+                    c.workers = 2;
+                    HybridRun remote = new HybridRun(c).run();
+                    long evaluations = remote.objective.getEvaluations();
+                    if (remote.min_Val != local.min_Val || evaluations != local.objective.getEvaluations()) {
+                        System.out.println(label + ": workers found " + remote.min_Val + " in " + evaluations
+                                + " evaluations, this process " + local.min_Val + " in "
+                                + local.objective.getEvaluations());
+                        System.exit(1);
+                    }
+                    long requests = remote.remote.requests.sum();
+                    if (requests * 4 > evaluations) {
+                        System.out.println(label + ": " + requests + " requests for " + evaluations
+                                + " evaluations, positions were not sent in batches");
+                        System.exit(1);
+                    }
+                    checked++;
+                }
+            }
+        }
+        System.out.println("runs evaluated by workers match runs in this process in " + checked + " cases");
+    }
+}
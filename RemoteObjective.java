@@ -0,0 +1,268 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RemoteObjective
+ *
+ * Evaluates an objective in separate worker processes, e.g. simulators, that
+ * talk to this one over their standard input and output. Positions are sent in
+ * batches and the values come back as futures, so a caller can keep several
+ * batches in flight instead of waiting on each point in turn. At most
+ * in_flight batches are outstanding over all workers; submitting more blocks
+ * until one is answered. The workers are started on the first evaluation.
+ *
+ * A request is the int batch id, the int number of rows n, the int number of
+ * coordinates d, and the n * d coordinates as doubles; the answer is the batch
+ * id, n, and the n values. Every number is big-endian. Worker is a stand-in
+ * worker that answers with one of the built-in functions.
+ */
+public class RemoteObjective implements ObjectiveFunction, AutoCloseable {
+
+    private final ObjectiveFunction ranges; // supplies the position and velocity ranges
+    private final List<String> command;
+    private final int workers;
+    private final int batch; // rows per request
+    private final Semaphore in_flight;
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicInteger next = new AtomicInteger(); // round-robin choice of worker
+    private Connection[] connections;
+
+    public final LongAdder requests = new LongAdder(); // batches sent
+
+    /**
+     * @param ranges    the function being evaluated, for its ranges
+     * @param command   the worker process to start, e.g. command(function, 0)
+     * @param workers   processes started
+     * @param batch     rows sent per request
+     * @param in_flight requests outstanding at once over all workers
+     */
+    public RemoteObjective(ObjectiveFunction ranges, List<String> command, int workers, int batch, int in_flight) {
+        this.ranges = ranges;
+        this.command = command;
+        this.workers = workers;
+        this.batch = batch;
+        this.in_flight = new Semaphore(in_flight);
+    }
+
+    /**
+     * the command that starts the stand-in Worker for a function from this
+     * JVM's class path, taking delay microseconds per evaluation
+     */
+    public static List<String> command(String function, long delay) {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return Arrays.asList(java, "-cp", System.getProperty("java.class.path"), "Worker", function,
+                Long.toString(delay));
+    }
+
+    private synchronized Connection[] connections() {
+        if (connections == null) {
+            Connection[] started = new Connection[workers];
+            for (int i = 0; i < workers; i++)
+                started[i] = new Connection(i);
+            connections = started;
+        }
+        return connections;
+    }
+
+    /**
+     * Sends the n rows of d coordinates of positions starting at index off to a
+     * worker, blocking while in_flight requests are outstanding. The future
+     * completes with the n values, or exceptionally if the worker fails.
+     */
+    public CompletableFuture<double[]> submit(double[] positions, int off, int n, int d) {
+        Connection[] all = connections();
+        Connection c = all[Math.floorMod(next.getAndIncrement(), all.length)];
+        in_flight.acquireUninterruptibly();
+        requests.increment();
+        int id = ids.incrementAndGet();
+        CompletableFuture<double[]> result = new CompletableFuture<double[]>();
+        c.pending.put(id, result);
+        try {
+            c.send(id, positions, off, n, d);
+        } catch (IOException e) {
+            if (c.pending.remove(id) != null) {
+                in_flight.release();
+                result.completeExceptionally(e);
+            }
+        }
+        return result;
+    }
+
+    private static double[] join(CompletableFuture<double[]> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw new UncheckedIOException("worker failed", (IOException) cause);
+            throw new IllegalStateException("worker failed", cause);
+        }
+    }
+
+    @Override
+    public double evaluate(double[] pos, int off, int d) {
+        return join(submit(pos, off, 1, d))[0];
+    }
+
+    /**
+     * splits the rows into batches, submits them all, then collects the values
+     */
+    @Override
+    public void evaluate(double[] positions, int row, int n, int d, double[] out) {
+        ArrayList<CompletableFuture<double[]>> results = new ArrayList<CompletableFuture<double[]>>();
+        for (int i = row; i < row + n; i += batch)
+            results.add(submit(positions, i * d, Math.min(batch, row + n - i), d));
+        for (int b = 0; b < results.size(); b++) {
+            double[] values = join(results.get(b));
+            System.arraycopy(values, 0, out, row + b * batch, values.length);
+        }
+    }
+
+    @Override
+    public void evaluate(double[][] positions, double[] out) {
+        if (positions.length == 0)
+            return;
+        int d = positions[0].length;
+        double[] flat = new double[positions.length * d];
+        for (int i = 0; i < positions.length; i++)
+            System.arraycopy(positions[i], 0, flat, i * d, d);
+        evaluate(flat, d, out);
+    }
+
+    @Override
+    public double getMinPosition() {
+        return ranges.getMinPosition();
+    }
+
+    @Override
+    public double getMaxPosition() {
+        return ranges.getMaxPosition();
+    }
+
+    @Override
+    public double getMinVelocity() {
+        return ranges.getMinVelocity();
+    }
+
+    @Override
+    public double getMaxVelocity() {
+        return ranges.getMaxVelocity();
+    }
+
+    /**
+     * closes the workers' input, which ends them, and waits briefly for them
+     * to exit
+     */
+    @Override
+    public synchronized void close() {
+        if (connections == null)
+            return;
+        for (Connection c : connections)
+            c.close();
+        connections = null;
+    }
+
+    /**
+     * one worker process: requests are written by the submitting threads under
+     * the connection's lock, and a reader thread completes their futures
+     */
+    private class Connection {
+        final Process process;
+        final OutputStream out;
+        final Map<Integer, CompletableFuture<double[]>> pending = new ConcurrentHashMap<Integer, CompletableFuture<double[]>>();
+        private byte[] buffer = new byte[0];
+
+        Connection(int index) {
+            try {
+                process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("cannot start worker " + String.join(" ", command), e);
+            }
+            out = new BufferedOutputStream(process.getOutputStream());
+            Thread reader = new Thread(this::read, "worker-" + index);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        synchronized void send(int id, double[] positions, int off, int n, int d) throws IOException {
+            int length = 12 + 8 * n * d;
+            if (buffer.length < length)
+                buffer = new byte[length];
+            ByteBuffer b = ByteBuffer.wrap(buffer);
+            b.putInt(id).putInt(n).putInt(d);
+            b.asDoubleBuffer().put(positions, off, n * d);
+            out.write(buffer, 0, length);
+            out.flush();
+        }
+
+        /**
+         * completes the future of each answer, and fails every outstanding one
+         * once the worker's output ends
+         */
+        private void read() {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            IOException failure;
+            try {
+                byte[] bytes = new byte[0];
+                while (true) {
+                    int id = in.readInt();
+                    int n = in.readInt();
+                    if (bytes.length < 8 * n)
+                        bytes = new byte[8 * n];
+                    in.readFully(bytes, 0, 8 * n);
+                    double[] values = new double[n];
+                    ByteBuffer.wrap(bytes, 0, 8 * n).asDoubleBuffer().get(values);
+                    CompletableFuture<double[]> result = pending.remove(id);
+                    if (result != null) {
+                        in_flight.release();
+                        result.complete(values);
+                    }
+                }
+            } catch (EOFException e) {
+                failure = new IOException("worker exited");
+            } catch (IOException e) {
+                failure = e;
+            }
+            for (Integer id : pending.keySet()) {
+                CompletableFuture<double[]> result = pending.remove(id);
+                if (result != null) {
+                    in_flight.release();
+                    result.completeExceptionally(failure);
+                }
+            }
+        }
+
+        void close() {
+            try {
+                synchronized (this) {
+                    out.close();
+                }
+                if (!process.waitFor(5, TimeUnit.SECONDS))
+                    process.destroy();
+            } catch (IOException e) {
+                process.destroy();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
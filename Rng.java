@@ -0,0 +1,33 @@
+import java.util.SplittableRandom;
+
+/**
+ * Rng
+ *
+ * Source of every random number used by one optimization. All generators are
+ * split from one master generator in a fixed order, so a run is fully
+ * determined by its seed regardless of how many threads execute it.
+ */
+public class Rng {
+    private final SplittableRandom master;
+
+    /**
+     * a master generator with a random seed
+     */
+    public Rng() {
+        master = new SplittableRandom();
+    }
+
+    /**
+     * a master generator started from a given seed
+     */
+    public Rng(long seed) {
+        master = new SplittableRandom(seed);
+    }
+
+    /**
+     * returns a new generator independent of all previously split ones
+     */
+    public synchronized SplittableRandom split() {
+        return master.split();
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Rosenbrock
+ *
+ * minimum is 0.0, which occurs at (1.0,...,1.0)
+ */
+public class Rosenbrock implements ObjectiveFunction {
+
+    @Override
+    public double evaluate(double[] pos, int off, int d) {
+        double sum = 0;
+        for (int i = off; i < off + d - 1; i++) {
+            double a = pos[i + 1] - pos[i] * pos[i];
+            double b = pos[i] - 1.0;
+            sum += 100.0 * a * a + b * b;
+        }
+        return sum;
+    }
+
+    @Override
+    public double getMinPosition() {
+        return 15.0;
+    }
+
+    @Override
+    public double getMaxPosition() {
+        return 30.0;
+    }
+
+    @Override
+    public double getMaxVelocity() {
+        return 2.0;
+    }
+}
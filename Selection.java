@@ -0,0 +1,139 @@
+import java.util.SplittableRandom;
+
+/**
+ * Selection
+ *
+ * Fitness-proportional sampling for the GA selection operators over primitive
+ * fitness arrays. The population is ranked with an index sort, each operator's
+ * weights are turned into prefix sums once, and every pick is a binary search,
+ * so selecting n individuals takes O(n log n). Weights are given as logarithms
+ * and shifted by their maximum (log-sum-exp) before exponentiating, so large
+ * ranks or small fitness values cannot overflow.
+ *
+ * Lower fitness is better throughout.
+ */
+public class Selection {
+
+    private int[] order = new int[0]; // indices sorted by fitness, best first
+    private int[] merge = new int[0]; // scratch for the merge sort
+    private double[] cumulative = new double[0]; // prefix sums of the weights
+
+    /**
+     * picks.length indices with probability proportional to rank, where the
+     * best of n individuals has rank n and the worst rank 1
+     */
+    public void rank(double[] fitness, int[] picks, SplittableRandom rand) {
+        int n = fitness.length;
+        argsort(fitness);
+        double sum = 0.0;
+        for (int j = 0; j < n; j++) {
+            sum += n - j;
+            cumulative[j] = sum;
+        }
+        sample(n, picks, rand, true);
+    }
+
+    /**
+     * picks.length indices with probability proportional to e raised to the
+     * rank, ranked as in rank
+     */
+    public void expRank(double[] fitness, int[] picks, SplittableRandom rand) {
+        int n = fitness.length;
+        argsort(fitness);
+        // log weight n - j, shifted by the largest, n
+        double sum = 0.0;
+        for (int j = 0; j < n; j++) {
+            sum += Math.exp(-j);
+            cumulative[j] = sum;
+        }
+        sample(n, picks, rand, true);
+    }
+
+    /**
+     * picks.length indices with probability proportional to e raised to
+     * 1 / fitness
+     */
+    public void boltzmann(double[] fitness, int[] picks, SplittableRandom rand) {
+        int n = fitness.length;
+        ensure(n);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++)
+            max = Math.max(max, 1 / fitness[i]);
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            double log_weight = 1 / fitness[i];
+            // fitness 0 gives an infinite weight, which takes every pick between its equals
+            sum += log_weight == max ? 1.0 : Math.exp(log_weight - max);
+            cumulative[i] = sum;
+        }
+        sample(n, picks, rand, false);
+    }
+
+    /**
+     * fills picks by drawing uniformly over the total weight and binary
+     * searching the prefix sums; ranked maps positions through order
+     */
+    private void sample(int n, int[] picks, SplittableRandom rand, boolean ranked) {
+        double total = cumulative[n - 1];
+        for (int p = 0; p < picks.length; p++) {
+            double r = rand.nextDouble() * total;
+            int lo = 0;
+            int hi = n - 1;
+            while (lo < hi) { // first position whose prefix sum exceeds r
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] > r)
+                    hi = mid;
+                else
+                    lo = mid + 1;
+            }
+            picks[p] = ranked ? order[lo] : lo;
+        }
+    }
+
+    /**
+     * sorts the indices of fitness into order, best first, with a stable
+     * bottom-up merge sort
+     */
+    private void argsort(double[] fitness) {
+        ensure(fitness.length);
+        argsort(fitness, fitness.length, order, merge);
+    }
+
+    /**
+     * sorts the indices of the first n values into order, lowest first, with a
+     * stable bottom-up merge sort; merge is scratch of at least n
+     */
+    static void argsort(double[] values, int n, int[] order, int[] merge) {
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        int[] src = order;
+        int[] dst = merge;
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int a = lo;
+                int b = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (a < mid && (b >= hi || Double.compare(values[src[a]], values[src[b]]) <= 0))
+                        dst[k] = src[a++];
+                    else
+                        dst[k] = src[b++];
+                }
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != order)
+            System.arraycopy(src, 0, order, 0, n);
+    }
+
+    private void ensure(int n) {
+        if (order.length < n) {
+            order = new int[n];
+            merge = new int[n];
+            cumulative = new double[n];
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SpscRing
+ *
+ * Bounded lock-free queue for exactly one producer thread and one consumer
+ * thread. Elements live in a preallocated power-of-two array indexed by two
+ * ever-increasing counters; each side only writes its own counter and reads
+ * the other's with acquire semantics, so neither side ever blocks or
+ * allocates. A full ring rejects the element instead of waiting.
+ */
+public class SpscRing<T> {
+
+    private final Object[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next slot to write, written by the producer
+    private long cached_head; // producer's last view of head
+    private long cached_tail; // consumer's last view of tail
+
+    /**
+     * a ring holding at least capacity elements
+     */
+    public SpscRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new Object[size];
+        mask = size - 1;
+    }
+
+    /**
+     * appends an element, returning false if the ring is full; producer only
+     */
+    public boolean offer(T element) {
+        long t = tail.get();
+        if (t - cached_head >= slots.length) {
+            cached_head = head.getAcquire();
+            if (t - cached_head >= slots.length)
+                return false;
+        }
+        slots[(int) t & mask] = element;
+        tail.setRelease(t + 1);
+        return true;
+    }
+
+    /**
+     * removes the oldest element, or returns null if the ring is empty;
+     * consumer only
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head.get();
+        if (h >= cached_tail) {
+            cached_tail = tail.getAcquire();
+            if (h >= cached_tail)
+                return null;
+        }
+        int slot = (int) h & mask;
+        T element = (T) slots[slot];
+        slots[slot] = null;
+        head.setRelease(h + 1);
+        return element;
+    }
+
+    /**
+     * number of elements in the ring; exact only when neither side is active
+     */
+    public int size() {
+        return (int) (tail.getAcquire() - head.getAcquire());
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * StyblinskiTang
+ *
+ * minimum is 1174.9797 for dimension=30, which occurs at(2.903534, 2.903534,
+ * ..., 2.903534).
+ */
+public class StyblinskiTang implements ObjectiveFunction {
+
+    @Override
+    public double evaluate(double[] pos, int off, int d) {
+        double sum = 0.0;
+        for (int i = off; i < off + d; i++) {
+            double x2 = pos[i] * pos[i];
+            sum += x2 * x2 - 16 * x2 + 5 * pos[i];
+        }
+        return sum / 2.0;
+    }
+
+    @Override
+    public double getMinPosition() {
+        return 0.0;
+    }
+
+    @Override
+    public double getMaxPosition() {
+        return 5.0;
+    }
+}
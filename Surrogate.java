@@ -0,0 +1,239 @@
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Surrogate
+ *
+ * A k-nearest-neighbor regressor of the objective, trained online on the
+ * positions evaluated exactly. It predicts a batch of candidates so that only
+ * the most promising fraction of them is evaluated with the objective; the rest
+ * keep their predicted value. The archive is a ring of the last capacity
+ * points, so the model is updated one point at a time in bounded memory and
+ * follows the search as it moves. The GA and the swarm of a pipelined run share
+ * one surrogate from two threads, so the archive is guarded by a read-write
+ * lock: predictions run at once and only adding a point excludes them. Each
+ * thread predicts, sorts and ranks in scratch arrays of its own, so nothing is
+ * allocated per call.
+ */
+public class Surrogate {
+
+    public final int d;
+    public final int k; // neighbors a prediction is made from
+    public final int capacity; // points kept in the archive
+    public final double fraction; // of each batch, the share evaluated exactly
+
+    // the archive and the statistics are saved and restored by Checkpoint
+    final double[] points; // archive point i is [i * d, (i + 1) * d)
+    final double[] values;
+    int count; // points in the archive
+    int next; // slot the next point is written to, the oldest once full
+
+    public final LongAdder candidates = new LongAdder(); // positions predicted
+    public final LongAdder exact = new LongAdder(); // of those, positions evaluated exactly
+    final DoubleAdder correlations = new DoubleAdder(); // sum of the batches' rank correlations
+    final LongAdder batches = new LongAdder(); // batches correlated
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * creates an empty surrogate of d-dimensional positions
+     *
+     * @throws IllegalArgumentException with k below 1, a capacity below k or
+     *                                  a fraction outside (0, 1]
+     */
+    public Surrogate(int d, int k, int capacity, double fraction) {
+        if (k < 1)
+            throw new IllegalArgumentException("k must be at least 1, not " + k);
+        if (capacity < k)
+            throw new IllegalArgumentException("capacity " + capacity + " is below k " + k);
+        if (!(fraction > 0.0 && fraction <= 1.0))
+            throw new IllegalArgumentException("fraction must be in (0, 1], not " + fraction);
+        this.d = d;
+        this.k = k;
+        this.capacity = capacity;
+        this.fraction = fraction;
+        this.points = new double[capacity * d];
+        this.values = new double[capacity];
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(k));
+    }
+
+    /**
+     * one thread's scratch arrays; the sort and rank arrays grow with the
+     * batches
+     */
+    private static class Scratch {
+        final double[] nearest; // squared distances, ascending
+        final double[] value; // values of the nearest points
+        int[] order = new int[0];
+        int[] merge = new int[0];
+        double[] predicted_ranks = new double[0];
+        double[] actual_ranks = new double[0];
+
+        Scratch(int k) {
+            nearest = new double[k];
+            value = new double[k];
+        }
+
+        void ensure(int n) {
+            if (order.length < n) {
+                order = new int[n];
+                merge = new int[n];
+                predicted_ranks = new double[n];
+                actual_ranks = new double[n];
+            }
+        }
+    }
+
+    /**
+     * whether the archive holds enough points to predict from
+     */
+    public boolean ready() {
+        lock.readLock().lock();
+        try {
+            return count >= k;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * adds the exact value of the d coordinates of pos starting at off,
+     * replacing the oldest point once the archive is full
+     */
+    public void add(double[] pos, int off, double value) {
+        lock.writeLock().lock();
+        try {
+            System.arraycopy(pos, off, points, next * d, d);
+            values[next] = value;
+            next = (next + 1) % capacity;
+            count = Math.min(count + 1, capacity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * returns the inverse-distance weighted mean of the values of the k archive
+     * points nearest the d coordinates of pos starting at off, or the value of
+     * an archive point at that very position
+     */
+    public double predict(double[] pos, int off) {
+        Scratch s = scratch.get();
+        lock.readLock().lock();
+        try {
+            return predict(pos, off, s.nearest, s.value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double predict(double[] pos, int off, double[] nearest, double[] value) {
+        int found = 0;
+        for (int p = 0; p < count; p++) {
+            double dist = 0.0;
+            int base = p * d;
+            for (int i = 0; i < d; i++) {
+                double diff = points[base + i] - pos[off + i];
+                dist += diff * diff;
+            }
+            if (found == k && dist >= nearest[k - 1])
+                continue;
+            if (dist == 0.0)
+                return values[p];
+            int j = found < k ? found++ : k - 1;
+            while (j > 0 && nearest[j - 1] > dist) {
+                nearest[j] = nearest[j - 1];
+                value[j] = value[j - 1];
+                j--;
+            }
+            nearest[j] = dist;
+            value[j] = values[p];
+        }
+        double sum = 0.0;
+        double weights = 0.0;
+        for (int j = 0; j < found; j++) {
+            sum += value[j] / nearest[j];
+            weights += 1.0 / nearest[j];
+        }
+        return sum / weights;
+    }
+
+    /**
+     * Fills order with the indices of the n candidates sorted by predicted
+     * value, best first, and returns how many of them, from the front, are to
+     * be evaluated exactly: the configured fraction, and at least one.
+     */
+    public int choose(double[] predicted, int n, int[] order) {
+        Scratch s = scratch.get();
+        s.ensure(n);
+        Selection.argsort(predicted, n, order, s.merge);
+        int m = Math.max(1, Math.min(n, (int) Math.ceil(fraction * n)));
+        candidates.add(n);
+        exact.add(m);
+        return m;
+    }
+
+    /**
+     * records the Spearman rank correlation between the predicted and the exact
+     * values of the m candidates of a batch that were evaluated exactly
+     */
+    public void correlate(double[] predicted, double[] actual, int m) {
+        if (m < 3)
+            return;
+        Scratch s = scratch.get();
+        s.ensure(m);
+        double[] rp = s.predicted_ranks;
+        double[] ra = s.actual_ranks;
+        ranks(predicted, m, s, rp);
+        ranks(actual, m, s, ra);
+        double mean = (m + 1) / 2.0;
+        double cov = 0.0;
+        double vp = 0.0;
+        double va = 0.0;
+        for (int i = 0; i < m; i++) {
+            cov += (rp[i] - mean) * (ra[i] - mean);
+            vp += (rp[i] - mean) * (rp[i] - mean);
+            va += (ra[i] - mean) * (ra[i] - mean);
+        }
+        if (vp == 0.0 || va == 0.0)
+            return;
+        correlations.add(cov / Math.sqrt(vp * va));
+        batches.increment();
+    }
+
+    /**
+     * writes to rank the ranks, from 1, of the first m values, ties sharing
+     * their mean rank
+     */
+    private static void ranks(double[] x, int m, Scratch s, double[] rank) {
+        int[] order = s.order;
+        Selection.argsort(x, m, order, s.merge);
+        for (int i = 0; i < m;) {
+            int j = i; // order[i..j] are tied
+            while (j + 1 < m && x[order[j + 1]] == x[order[i]])
+                j++;
+            double mean = (i + j) / 2.0 + 1;
+            for (int t = i; t <= j; t++)
+                rank[order[t]] = mean;
+            i = j + 1;
+        }
+    }
+
+    /**
+     * exact evaluations the surrogate saved
+     */
+    public long saved() {
+        return candidates.sum() - exact.sum();
+    }
+
+    /**
+     * mean rank correlation between predicted and exact values over the
+     * batches, NaN before the first
+     */
+    public double rankCorrelation() {
+        long n = batches.sum();
+        return n == 0 ? Double.NaN : correlations.sum() / n;
+    }
+}
@@ -1,5 +1,14 @@
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import jdk.jfr.FlightRecorder;
 
 /**
  * Swarm
@@ -13,16 +22,47 @@ import java.util.Random;
  */
 public class Swarm {
 
-    public static int dim;
-    public static String function;
-    public static String topology;
-    private static int swarm_size;
+    public int dim;
+    public ObjectiveFunction function;
+    public String topology;
+    private int swarm_size;
     private static double RA_PROB = 0.20;
-    private static int ROWS;
-    private static int COLUMNS;
     public double min;
     public double[] min_pos;
-    public static Particle[] swarm;
+    public Particle[] swarm;
+    public NeighborGraph graph; // neighborhoods by particle index
+    public String storage = "obj"; // or "soa"
+    public boolean async = false; // steady-state moves without iterations, see execute_async
+    public int threads = 1; // > 1 moves and evaluates particles in parallel
+    public ForkJoinPool pool; // executor for parallel moves, created on first use
+    public Termination termination; // null runs every iteration
+    public Metrics metrics; // null records nothing
+    public Trace trace; // null records nothing
+    private long traced; // iterations made over all calls, for the trace
+    private double[] sums; // scratch for the trace's diversity
+    private long moves; // particle moves made, for metrics
+    // learned pre-screening, see Surrogate: only the moves predicted best are
+    // evaluated exactly, and the other particles keep their pbest
+    public Surrogate surrogate; // null evaluates every move
+    private double[] predicted; // scratch for the surrogate: predictions of the moves
+    private int[] order; // particles by prediction
+    private double[] expected; // predictions and exact values of the moves evaluated exactly
+    private double[] actual;
+    private double[] batch; // positions evaluated exactly in obj storage, gathered by particle index
+    private double[] batch_values;
+
+    // structure-of-arrays storage used when storage is "soa": particle i owns
+    // the slice [i * dim, (i + 1) * dim) of each vector array
+    private double[] positions;
+    private double[] velocities;
+    private double[] pbests;
+    private double[] gbests;
+    private double[] best_vals;
+    private double[] gbest_vals;
+    private double[] position_vals;
+    private double[] gl_pos; // snapshot of the global gbest, the pbest of gl_src
+    private SplittableRandom rand; // swarm-level decisions: initial vectors, ra neighborhoods
+    private Rng rng; // source of the particles' streams
 
     /**
      * Initializes an instance of a Swarm object
@@ -31,26 +71,17 @@ public class Swarm {
      * @param size number particles in the swarm
      * @param func mathematical function we are trying to optimize
      * @param d    dimensions that the function is being evaluated in
+     * @param rng  random source of the run the swarm belongs to
      */
 
-    public Swarm(String top, int size, String func, int d) {
+    public Swarm(String top, int size, ObjectiveFunction func, int d, Rng rng) {
         this.topology = top;
         this.swarm_size = size;
         this.function = func;
         this.dim = d;
         min_pos = new double[this.dim];
-
-        // sets rows and columns if topology is vn
-        if (size == 16) {
-            ROWS = 4;
-            COLUMNS = 4;
-        } else if (size == 30) {
-            ROWS = 5;
-            COLUMNS = 6;
-        } else {
-            ROWS = 7;
-            COLUMNS = 7;
-        }
+        this.rng = rng;
+        rand = rng.split();
     }
 
     /**
@@ -60,34 +91,67 @@ public class Swarm {
      * 
      * @param iter number of iterations
      * @return ArrayList<Individual> : creates Individuals using all the positions
-     *         and returns them to be used by the GA
+     *         and returns them to be used by the GA. Each call is recorded in
+     *         metrics when they are set.
      */
     public ArrayList<Individual> execute(int iter) {
+        if (metrics == null)
+            return async ? execute_async(iter) : storage.equals("soa") ? execute_soa(iter) : execute_obj(iter);
+        long start = System.nanoTime();
+        long bytes = Metrics.allocatedBytes();
+        long moved = moves;
+        ArrayList<Individual> pop = async ? execute_async(iter)
+                : storage.equals("soa") ? execute_soa(iter) : execute_obj(iter);
+        metrics.psoPhase(System.nanoTime() - start, Metrics.allocatedBytes() - bytes, moves - moved, min);
+        return pop;
+    }
+
+    private ArrayList<Individual> execute_obj(int iter) {
         double min = Double.MAX_VALUE;
         double[] min_pos = new double[dim];
-        double[] bests = new double[iter / 1000]; // best value each 1000 iterations
-        int best_ctr = 0;
 
-        for (int i = 0; i < swarm.length; i++)
-            swarm[i].set_gbest();
+        if (graph.global) { // the whole swarm's best is every particle's best neighbor
+            Particle best = swarm[best_particle()];
+            for (int i = 0; i < swarm.length; i++)
+                swarm[i].offer_gbest(best);
+        } else {
+            for (int i = 0; i < swarm.length; i++)
+                swarm[i].set_gbest();
+        }
 
         for (int i = 0; i < iter; i++) {
-            for (int k = 0; k < swarm.length; k++) {
-                swarm[k].update_velocity_position();
-                swarm[k].set_pbest();
+            // the event classes are not even loaded until Flight Recorder starts
+            SwarmIterationEvent event = FlightRecorder.isInitialized() ? new SwarmIterationEvent() : null;
+            boolean timed = event != null && event.isEnabled(); // no timestamps unless recorded
+            if (timed)
+                event.begin();
+            long start = timed ? System.nanoTime() : 0;
+            if (surrogate == null) {
+                scratch(swarm.length);
+                for_each_chunk((lo, hi) -> {
+                    for (int k = lo; k < hi; k++) {
+                        swarm[k].update_velocity_position();
+                        System.arraycopy(swarm[k].position, 0, batch, k * dim, dim);
+                    }
+                    function.evaluate(batch, lo, hi - lo, dim, batch_values);
+                    for (int k = lo; k < hi; k++)
+                        swarm[k].update_pbest(batch_values[k]);
+                });
+            } else {
+                for_each_particle(k -> swarm[k].update_velocity_position());
+                prescreen_obj();
             }
+            moves += swarm.length;
+            long updated = timed ? System.nanoTime() : 0;
 
             if (this.topology.equals("gl")) { // we set the gbest for global seperately
-                double curGbest = swarm[3].getBestVal(); // can be bestVal of any particle
-                double[] curGbestPos = swarm[3].position;
+                int best = best_particle();
+                double curGbest = swarm[best].getBestVal();
+                // snapshot of the pbest the value belongs to, so the result does
+                // not depend on the order particles are moved in
+                double[] curGbestPos = swarm[best].getPbest().clone();
                 for (int k = 0; k < swarm.length; k++) {
-                    if (swarm[k].getBestVal() < curGbest) {
-                        curGbest = swarm[k].getBestVal();
-                        curGbestPos = swarm[k].position;
-                    }
-                }
-                for (int k = 0; k < swarm.length; k++) {
-                    swarm[k].set_gbest_global(curGbestPos);
+                    swarm[k].set_gbest_global(curGbestPos, curGbest);
                 }
 
             } else {
@@ -97,11 +161,12 @@ public class Swarm {
             }
 
             if (this.topology.equals("ra")) {
-                Random r = new Random();
                 for (int v = 0; v < swarm.length; v++) { // particle by particle basis
-                    if (r.nextDouble() < RA_PROB)
+                    if (rand.nextDouble() < RA_PROB) {
                         // recreate particle's neighborhood
-                        swarm[v].set_neighbors(generateRaNeighbors(swarm[v], swarm));
+                        graph.resample(v, rand);
+                        update_neighbors(swarm, v);
+                    }
                 }
             }
 
@@ -111,9 +176,14 @@ public class Swarm {
                     min_pos = swarm[c].getPbest();
                 }
             }
-            if (i % 1000 == 0 && i != 0) {
-                bests[best_ctr] = min;
-                best_ctr++;
+            if (timed && event.shouldCommit())
+                event.end(i, start, updated, min);
+            if (trace != null)
+                trace_obj(min);
+            if (termination != null) {
+                termination.report(min);
+                if (termination.done())
+                    break;
             }
 
         }
@@ -126,28 +196,570 @@ public class Swarm {
         }
         this.min = min;
         this.min_pos = min_pos;
-        // bests[best_ctr] = min;
 
         ArrayList<Individual> pop = new ArrayList<Individual>();
-        for (int i = 0; i < Main.size; i++) {
-            Individual new_ind = new Individual(swarm[i].position, function);
+        for (int i = 0; i < swarm_size; i++) {
+            Individual new_ind = new Individual(swarm[i].position, swarm[i].getPositionVal());
             pop.add(new_ind);
         }
         return pop;
     }
 
+    /**
+     * Same algorithm as execute, run over the contiguous primitive arrays. The
+     * particles' state is loaded into the arrays, the iterations run without
+     * allocating, and the state is written back so the Particle objects remain
+     * valid views of the swarm afterwards.
+     */
+    private ArrayList<Individual> execute_soa(int iter) {
+        load_storage();
+        boolean global = topology.equals("gl");
+        int n = swarm.length;
+        int gl_src = -1; // particle whose pbest gl_pos holds, -1 before the first pass
+        double min = Double.MAX_VALUE;
+        int min_idx = 0;
+
+        update_gbests_soa();
+
+        for (int i = 0; i < iter; i++) {
+            SwarmIterationEvent event = FlightRecorder.isInitialized() ? new SwarmIterationEvent() : null;
+            boolean timed = event != null && event.isEnabled();
+            if (timed)
+                event.begin();
+            long start = timed ? System.nanoTime() : 0;
+            boolean use_gl = gl_src >= 0;
+            if (surrogate != null) {
+                for (int k = 0; k < n; k++)
+                    update_velocity_position_soa(k, use_gl);
+                prescreen_soa();
+            } else {
+                // a particle's move depends only on its own pbest and gbest, so
+                // each thread moves its chunk, evaluates it in one batch and
+                // refreshes its pbests
+                for_each_chunk((lo, hi) -> {
+                    for (int k = lo; k < hi; k++)
+                        update_velocity_position_soa(k, use_gl);
+                    function.evaluate(positions, lo, hi - lo, dim, position_vals);
+                    for (int k = lo; k < hi; k++)
+                        update_pbest_soa(k);
+                });
+            }
+            moves += n;
+            long updated = timed ? System.nanoTime() : 0;
+
+            if (global) { // same rule as execute: snapshot the pbest of the best particle
+                gl_src = 0;
+                for (int k = 1; k < n; k++) {
+                    if (best_vals[k] < best_vals[gl_src])
+                        gl_src = k;
+                }
+                System.arraycopy(pbests, gl_src * dim, gl_pos, 0, dim);
+            } else {
+                update_gbests_soa();
+            }
+
+            if (topology.equals("ra")) {
+                for (int v = 0; v < n; v++) {
+                    if (rand.nextDouble() < RA_PROB)
+                        graph.resample(v, rand);
+                }
+            }
+
+            for (int c = 0; c < n; c++) {
+                if (best_vals[c] < min) {
+                    min = best_vals[c];
+                    min_idx = c;
+                }
+            }
+            if (timed && event.shouldCommit())
+                event.end(i, start, updated, min);
+            if (trace != null)
+                trace_soa(min);
+            if (termination != null) {
+                termination.report(min);
+                if (termination.done())
+                    break;
+            }
+        }
+        store_storage(gl_src);
+
+        for (int i = 0; i < n; i++) {
+            if (best_vals[i] < min) {
+                min = best_vals[i];
+                min_idx = i;
+            }
+        }
+        this.min = min;
+        this.min_pos = swarm[min_idx].getPbest();
+
+        ArrayList<Individual> pop = new ArrayList<Individual>();
+        for (int i = 0; i < swarm_size; i++) {
+            pop.add(new Individual(swarm[i].position, swarm[i].getPositionVal()));
+        }
+        return pop;
+    }
+
+    /**
+     * Asynchronous steady-state PSO: the particles do not move in lockstep
+     * iterations. Each particle makes iter moves, and is queued for its next
+     * move as soon as the evaluation of its last one completes, so a slow
+     * evaluation holds up only its own particle. Before a move a particle reads
+     * the latest pbests its neighbors have published, or in the global topology
+     * the best pbest any particle has published, and it publishes its own pbest
+     * whenever it improves; neither takes a lock. The moves run on the pool when
+     * threads is greater than 1, and in queue order on this thread otherwise.
+     * In the random topology a particle redraws its own neighborhood from its
+     * own stream. The storage and the surrogate are not used, and no
+     * per-iteration events or trace records are made, as there are no
+     * iterations.
+     *
+     * With threads greater than 1 the order in which the particles move, and
+     * so which pbests they read, depends on timing: a seeded run is not
+     * reproducible and does not resume exactly from a checkpoint. On one
+     * thread the moves follow the queue and the run is deterministic.
+     */
+    private ArrayList<Individual> execute_async(int iter) {
+        int n = swarm.length;
+        AtomicReference<double[]> best = new AtomicReference<double[]>(); // best published in gl
+        ConcurrentLinkedQueue<Particle> ready = new ConcurrentLinkedQueue<Particle>();
+        int[] left = new int[n]; // moves each particle has still to make
+        for (Particle p : swarm) {
+            p.own_gbest();
+            p.publish();
+            offer_best(best, p.published());
+            left[p.index] = iter;
+            if (iter > 0)
+                ready.add(p);
+        }
+        AtomicInteger moving = new AtomicInteger(ready.size()); // particles with moves left
+        LongAdder made = new LongAdder();
+        Runnable worker = () -> {
+            // improvements are reported once every n moves of a thread, not on
+            // each, so the threads rarely meet on the termination's lock
+            double improved = Double.MAX_VALUE;
+            int unreported = 0;
+            while (moving.get() > 0) {
+                Particle p = ready.poll();
+                if (p == null) { // every particle left is being moved elsewhere
+                    Thread.yield();
+                    continue;
+                }
+                if (termination != null && termination.done()) {
+                    moving.set(0);
+                    break;
+                }
+                if (move_async(p, best))
+                    improved = Math.min(improved, p.getBestVal());
+                if (++unreported == n && termination != null && improved < Double.MAX_VALUE) {
+                    termination.report(improved);
+                    improved = Double.MAX_VALUE;
+                    unreported = 0;
+                }
+                made.increment();
+                // the queue hands the particle, and left[p.index], to the next thread
+                if (--left[p.index] > 0)
+                    ready.add(p);
+                else
+                    moving.decrementAndGet();
+            }
+            if (termination != null && improved < Double.MAX_VALUE)
+                termination.report(improved);
+        };
+        if (threads > 1) {
+            if (pool == null || pool.getParallelism() != threads)
+                pool = new ForkJoinPool(threads);
+            ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+            for (int t = 0; t < threads; t++)
+                tasks.add(pool.submit(worker));
+            for (ForkJoinTask<?> task : tasks)
+                task.join();
+        } else {
+            worker.run();
+        }
+        moves += made.sum();
+
+        double min = Double.MAX_VALUE;
+        double[] min_pos = new double[dim];
+        for (int i = 0; i < n; i++) {
+            if (swarm[i].getBestVal() < min) {
+                min = swarm[i].getBestVal();
+                min_pos = swarm[i].getPbest();
+            }
+        }
+        this.min = min;
+        this.min_pos = min_pos;
+
+        ArrayList<Individual> pop = new ArrayList<Individual>();
+        for (int i = 0; i < swarm_size; i++)
+            pop.add(new Individual(swarm[i].position, swarm[i].getPositionVal()));
+        return pop;
+    }
+
+    /**
+     * one move of execute_async: takes the best published pbest as gbest,
+     * moves, evaluates, and publishes pbest if it improved, returning whether
+     * it did
+     */
+    private boolean move_async(Particle p, AtomicReference<double[]> best) {
+        if (graph.global) {
+            p.offer_published(best.get());
+        } else {
+            for (Particle neighbor : p.neighbors)
+                p.offer_published(neighbor.published());
+        }
+        p.update_velocity_position();
+        double before = p.getBestVal();
+        p.set_pbest();
+        boolean improved = p.getBestVal() < before;
+        if (improved) {
+            p.publish();
+            offer_best(best, p.published());
+        }
+        if (topology.equals("ra") && p.rand.nextDouble() < RA_PROB) {
+            graph.resample(p.index, p.rand);
+            update_neighbors(swarm, p.index);
+        }
+        return improved;
+    }
+
+    /**
+     * replaces the best published pbest by snapshot if it is better, retrying
+     * when another thread replaces it first
+     */
+    private static void offer_best(AtomicReference<double[]> best, double[] snapshot) {
+        int d = snapshot.length - 1;
+        double[] current;
+        do {
+            current = best.get();
+            if (current != null && current[d] <= snapshot[d])
+                return;
+        } while (!best.compareAndSet(current, snapshot));
+    }
+
+    /**
+     * Evaluates the moves the surrogate predicts best, updating those particles'
+     * pbests and training the surrogate with their values. The other particles
+     * take their predicted value as the value of their position and keep their
+     * pbest, which therefore only ever holds exactly evaluated positions. Until
+     * the surrogate has enough points every move is evaluated.
+     */
+    private void prescreen_obj() {
+        int n = swarm.length;
+        scratch(n);
+        int count = n;
+        boolean ranked = surrogate.ready();
+        if (ranked) {
+            for (int k = 0; k < n; k++)
+                predicted[k] = surrogate.predict(swarm[k].position, 0);
+            count = surrogate.choose(predicted, n, order);
+        } else {
+            for (int k = 0; k < n; k++)
+                order[k] = k;
+        }
+        for (int j = 0; j < count; j++) // the moves to evaluate, in one batch
+            System.arraycopy(swarm[order[j]].position, 0, batch, j * dim, dim);
+        function.evaluate(batch, 0, count, dim, batch_values);
+        for (int j = 0; j < n; j++) {
+            Particle p = swarm[order[j]];
+            if (j < count) {
+                p.update_pbest(batch_values[j]);
+                expected[j] = predicted[order[j]];
+                actual[j] = batch_values[j];
+                surrogate.add(p.position, 0, actual[j]);
+            } else {
+                p.setPositionVal(predicted[order[j]]);
+            }
+        }
+        if (ranked)
+            surrogate.correlate(expected, actual, count);
+    }
+
+    /**
+     * prescreen_obj over the flat arrays
+     */
+    private void prescreen_soa() {
+        int n = swarm.length;
+        scratch(n);
+        int count = n;
+        boolean ranked = surrogate.ready();
+        if (ranked) {
+            for (int k = 0; k < n; k++)
+                predicted[k] = surrogate.predict(positions, k * dim);
+            count = surrogate.choose(predicted, n, order);
+        } else {
+            for (int k = 0; k < n; k++)
+                order[k] = k;
+        }
+        for (int j = 0; j < count; j++) // the moves to evaluate, in one batch
+            System.arraycopy(positions, order[j] * dim, batch, j * dim, dim);
+        function.evaluate(batch, 0, count, dim, batch_values);
+        for (int j = 0; j < n; j++) {
+            int k = order[j];
+            if (j < count) {
+                position_vals[k] = batch_values[j];
+                update_pbest_soa(k);
+                expected[j] = predicted[k];
+                actual[j] = position_vals[k];
+                surrogate.add(positions, k * dim, actual[j]);
+            } else {
+                position_vals[k] = predicted[k];
+            }
+        }
+        if (ranked)
+            surrogate.correlate(expected, actual, count);
+    }
+
+    private void scratch(int n) {
+        if (predicted == null || predicted.length != n) {
+            predicted = new double[n];
+            order = new int[n];
+            expected = new double[n];
+            actual = new double[n];
+            batch = new double[n * dim];
+            batch_values = new double[n];
+        }
+    }
+
+    /**
+     * records an iteration of execute: the best pbest value, the mean value of
+     * the current positions and their spread
+     */
+    private void trace_obj(double min) {
+        if (sums == null)
+            sums = new double[dim];
+        double mean = 0.0;
+        double sq = 0.0;
+        for (Particle p : swarm) {
+            mean += p.getPositionVal();
+            sq += Trace.accumulate(p.position, 0, dim, sums);
+        }
+        trace.record(traced++, Trace.PSO, min, mean / swarm.length, CountingObjective.evaluations(function),
+                Trace.diversity(sums, sq, swarm.length));
+    }
+
+    /**
+     * trace_obj over the flat arrays
+     */
+    private void trace_soa(double min) {
+        if (sums == null)
+            sums = new double[dim];
+        int n = swarm.length;
+        double mean = 0.0;
+        double sq = 0.0;
+        for (int k = 0; k < n; k++) {
+            mean += position_vals[k];
+            sq += Trace.accumulate(positions, k * dim, dim, sums);
+        }
+        trace.record(traced++, Trace.PSO, min, mean / n, CountingObjective.evaluations(function),
+                Trace.diversity(sums, sq, n));
+    }
+
+    /**
+     * returns the index of the particle with the best pbest, the first one on
+     * ties
+     */
+    private int best_particle() {
+        int best = 0;
+        for (int i = 1; i < swarm.length; i++) {
+            if (swarm[i].getBestVal() < swarm[best].getBestVal())
+                best = i;
+        }
+        return best;
+    }
+
+    /**
+     * copies every particle's vectors into the flat arrays,
+     * allocating them only when the swarm shape changes
+     */
+    private void load_storage() {
+        int n = swarm.length;
+        if (positions == null || positions.length != n * dim) {
+            positions = new double[n * dim];
+            velocities = new double[n * dim];
+            pbests = new double[n * dim];
+            gbests = new double[n * dim];
+            best_vals = new double[n];
+            gbest_vals = new double[n];
+            position_vals = new double[n];
+            gl_pos = new double[dim];
+        }
+
+        for (int i = 0; i < n; i++) {
+            Particle p = swarm[i];
+            p.index = i;
+            System.arraycopy(p.position, 0, positions, i * dim, dim);
+            System.arraycopy(p.velocity, 0, velocities, i * dim, dim);
+            System.arraycopy(p.getPbest(), 0, pbests, i * dim, dim);
+            System.arraycopy(p.getGbest(), 0, gbests, i * dim, dim);
+            best_vals[i] = p.getBestVal();
+            gbest_vals[i] = p.getGbestVal();
+            position_vals[i] = p.getPositionVal();
+        }
+    }
+
+    /**
+     * writes the flat arrays back into the particles
+     */
+    private void store_storage(int gl_src) {
+        for (int i = 0; i < swarm.length; i++) {
+            Particle p = swarm[i];
+            System.arraycopy(positions, i * dim, p.position, 0, dim);
+            System.arraycopy(velocities, i * dim, p.velocity, 0, dim);
+            System.arraycopy(pbests, i * dim, p.getPbest(), 0, dim);
+            if (gl_src < 0) {
+                System.arraycopy(gbests, i * dim, p.getGbest(), 0, dim);
+            } else {
+                p.set_gbest_global(gl_pos.clone(), best_vals[gl_src]);
+            }
+            p.setBestVal(best_vals[i]);
+            p.setGbestVal(gbest_vals[i]);
+            p.setPositionVal(position_vals[i]);
+            if (topology.equals("ra"))
+                update_neighbors(swarm, i);
+        }
+    }
+
+    /**
+     * a contiguous range [lo, hi) of particle indices
+     */
+    private interface Chunk {
+        void run(int lo, int hi);
+    }
+
+    /**
+     * runs action over all particles as one chunk, or as one chunk per thread
+     * on the pool when threads is greater than 1, so that each chunk's
+     * positions can be evaluated in one batch call
+     */
+    private void for_each_chunk(Chunk action) {
+        int n = swarm.length;
+        if (threads > 1) {
+            if (pool == null || pool.getParallelism() != threads)
+                pool = new ForkJoinPool(threads);
+            int size = (n + threads - 1) / threads;
+            pool.submit(() -> IntStream.range(0, (n + size - 1) / size).parallel()
+                    .forEach(t -> action.run(t * size, Math.min(n, (t + 1) * size)))).join();
+        } else {
+            action.run(0, n);
+        }
+    }
+
+    /**
+     * runs action for every particle index, split across the pool when threads
+     * is greater than 1. Returns once every particle has been processed, which
+     * is the barrier before the neighborhood-best phase.
+     */
+    private void for_each_particle(IntConsumer action) {
+        if (threads > 1) {
+            if (pool == null || pool.getParallelism() != threads)
+                pool = new ForkJoinPool(threads);
+            pool.submit(() -> IntStream.range(0, swarm.length).parallel().forEach(action)).join();
+        } else {
+            for (int k = 0; k < swarm.length; k++)
+                action.accept(k);
+        }
+    }
+
+    /**
+     * Particle.update_velocity_position over the flat arrays, drawing from the
+     * particle's own stream. With use_gl the global gbest snapshot is used in
+     * place of the particle's gbest slice.
+     */
+    private void update_velocity_position_soa(int k, boolean use_gl) {
+        int off = k * dim;
+        double[] g = use_gl ? gl_pos : gbests;
+        int goff = use_gl ? 0 : off;
+        SplittableRandom r = swarm[k].rand;
+        for (int i = 0; i < dim; i++) {
+            double u1 = r.nextDouble() * Particle.PHI;
+            double u2 = r.nextDouble() * Particle.PHI;
+            double x = positions[off + i];
+            double v = Particle.CONSTRICTION_FACTOR
+                    * (velocities[off + i] + u1 * (pbests[off + i] - x) + u2 * (g[goff + i] - x));
+            velocities[off + i] = v;
+            positions[off + i] = x + v;
+        }
+    }
+
+    /**
+     * Particle.set_pbest over the flat arrays, using the value of the particle's
+     * position from the batch evaluation
+     */
+    private void update_pbest_soa(int k) {
+        if (position_vals[k] < best_vals[k]) {
+            System.arraycopy(positions, k * dim, pbests, k * dim, dim);
+            best_vals[k] = position_vals[k];
+        }
+    }
+
+    /**
+     * Particle.set_gbest over the flat arrays for every particle. In the global
+     * topology every neighborhood is the whole swarm, so the best pbest is found
+     * once and offered to each particle.
+     */
+    private void update_gbests_soa() {
+        if (graph.global) {
+            int best = 0;
+            for (int m = 1; m < swarm.length; m++) {
+                if (best_vals[m] < best_vals[best])
+                    best = m;
+            }
+            for (int j = 0; j < swarm.length; j++)
+                offer_gbest_soa(j, best);
+        } else {
+            for (int j = 0; j < swarm.length; j++) {
+                for (int slot = graph.start(j); slot < graph.end(j); slot++)
+                    offer_gbest_soa(j, graph.neighbor(slot));
+            }
+        }
+    }
+
+    /**
+     * Particle.offer_gbest over the flat arrays
+     */
+    private void offer_gbest_soa(int j, int n) {
+        if (best_vals[n] < gbest_vals[j]) {
+            System.arraycopy(pbests, n * dim, gbests, j * dim, dim);
+            gbest_vals[j] = best_vals[n];
+        }
+    }
+
+    /**
+     * replaces the swarm's own random stream by one seeded from it and returns
+     * the seed, see HybridRun.reseed
+     */
+    long reseed() {
+        long seed = rand.nextLong();
+        rand = new SplittableRandom(seed);
+        return seed;
+    }
+
+    void reseed(long seed) {
+        rand = new SplittableRandom(seed);
+    }
+
+    /**
+     * gives every particle its neighbors from the graph again, after the graph
+     * has been restored
+     */
+    void refresh_neighbors() {
+        if (!graph.global) {
+            for (int i = 0; i < swarm.length; i++)
+                update_neighbors(swarm, i);
+        }
+    }
+
     /**
      * returns a random double in a specified range
      * 
      * @param min smallest possible value for random number
      * @param max greatest possible value for random number
      */
-    public static double getRandomDouble(double min, double max) {
-        Random rand = new Random();
+    public double getRandomDouble(double min, double max) {
         return ((rand.nextDouble() * (max - min) + min));
     }
 
-    public static Particle getParticle(int i) {
+    public Particle getParticle(int i) {
         return swarm[i];
     }
 
@@ -157,7 +769,7 @@ public class Swarm {
      * @param min smallest possible value for random number
      * @param max greatest possible value for random number
      */
-    public static double[] createPosition(double min, double max) {
+    public double[] createPosition(double min, double max) {
         double initial_position[];
         initial_position = new double[dim];
         for (int i = 0; i < dim; i++) {
@@ -172,7 +784,7 @@ public class Swarm {
      * @param min smallest possible value for random number
      * @param max greatest possible value for random number
      */
-    public static double[] createVelocity(double min, double max) {
+    public double[] createVelocity(double min, double max) {
         double initial_velocity[];
         initial_velocity = new double[dim];
         for (int i = 0; i < dim; i++) {
@@ -181,171 +793,50 @@ public class Swarm {
         return initial_velocity;
     }
 
-    /**
-     * converts a 1D array into a 2D array for the purposes of defining neighbors in
-     * von Neumann
-     */
-    public static Particle[][] vonNeumann_convert(Particle[] swarm) {
-        Particle swarm_2d[][] = new Particle[ROWS][COLUMNS];
-        int counter = 0;
-        for (int i = 0; i < ROWS; i++) {
-            for (int j = 0; j < COLUMNS; j++) {
-                swarm_2d[i][j] = swarm[counter];
-                counter++;
-            }
-        }
-        return swarm_2d;
-    }
-
-    /**
-     * given a particle in a swarm, assigns the particle k-1 random neighbors
-     * without repetition. Note: value of k = 5 being used.
-     * 
-     * @return the randomly generated neighbors of a given particle
-     */
-    public static Particle[] generateRaNeighbors(Particle particle, Particle[] swarm) {
-        // k = 5
-        ArrayList<Integer> indices = new ArrayList<Integer>();
-        int counter = 0;
-        int particle_index = 100; // out of bounds
-        for (int k = 0; k < swarm.length; k++) { // create arrayList of swarm indices
-            indices.add(counter);
-            counter++;
-            if (swarm[k].equals(particle)) { // find index of particle
-                particle_index = k;
-            }
-        }
-        Random rand = new Random();
-        Particle neighbors[];
-        neighbors = new Particle[5];
-
-        neighbors[0] = swarm[indices.remove(particle_index)]; // don't duplicate itself
-        neighbors[1] = swarm[indices.remove(rand.nextInt(indices.size()))];
-        neighbors[2] = swarm[indices.remove(rand.nextInt(indices.size()))];
-        neighbors[3] = swarm[indices.remove(rand.nextInt(indices.size()))];
-        neighbors[4] = swarm[indices.remove(rand.nextInt(indices.size()))];
-
-        return neighbors;
-    }
-
     /**
      * generates a swarm
      * 
      * @return the initial swarm with particles randomly dispersed across the
      *         solution space according to specified ranges of each function
      */
-    public static Particle[] generate_swarm(String function, String topology) {
+    public Particle[] generate_swarm(ObjectiveFunction function, String topology) {
 
         Particle swarm[];
         swarm = new Particle[swarm_size];
-        if (function.equals("ros")) {
-            for (int i = 0; i < swarm_size; i++) {
-                swarm[i] = new Particle(createPosition(15.0, 30.0), createVelocity(-2.0, 2.0));
-            }
-
-        } else if (function.equals("ack")) {
-            for (int i = 0; i < swarm_size; i++) {
-                swarm[i] = new Particle(createPosition(16.0, 32.0), createVelocity(-2.0, 4.0));
-            }
-
-        } else if (function.equals("ras")) {
-            for (int i = 0; i < swarm_size; i++) {
-                swarm[i] = new Particle(createPosition(2.56, 5.12), createVelocity(-2.0, 4.0));
-            }
-        } else if (function.equals("zakh")) {
-            for (int i = 0; i < swarm_size; i++) {
-                swarm[i] = new Particle(createPosition(5.0, 10.0), createVelocity(-2.0, 4.0));
-            }
-        }
-
-        else { // Styb
-            for (int i = 0; i < swarm_size; i++) {
-                swarm[i] = new Particle(createPosition(0.0, 5.0), createVelocity(-2.0, 4.0));
-            }
+        for (int i = 0; i < swarm_size; i++) {
+            swarm[i] = new Particle(createPosition(function.getMinPosition(), function.getMaxPosition()),
+                    createVelocity(function.getMinVelocity(), function.getMaxVelocity()), function, rng.split());
         }
 
+        for (int i = 0; i < swarm_size; i++)
+            swarm[i].index = i;
         create_neighborhoods(topology, swarm); // initialize neighbors of each particle
         return swarm;
     }
 
     /**
-     * Given a topology, sets neighborhood for each particle in a swarm
+     * Given a topology, builds the neighborhood graph of a swarm and gives each
+     * particle its neighbors
      */
-    private static void create_neighborhoods(String topology, Particle[] swarm) {
-
-        if (topology.equals("gl")) {
-            for (int i = 0; i < swarm.length; i++) {
+    private void create_neighborhoods(String topology, Particle[] swarm) {
+        graph = NeighborGraph.create(topology, swarm.length, rand);
+        for (int i = 0; i < swarm.length; i++) {
+            if (graph.global) {
                 swarm[i].set_neighbors(swarm); // every particle’s neighborhood is the entire swarm
-            }
-
-        } else if (topology.equals("ri")) {
-            for (int i = 0; i < swarm.length; i++) {
-                Particle neighbors[];
-                neighbors = new Particle[3];
-                // edge case 1: particle with no neighbor to the left
-                if (i == 0) {
-                    neighbors[0] = swarm[swarm.length - 1];
-                    neighbors[1] = swarm[i];
-                    neighbors[2] = swarm[i + 1];
-                }
-                // edge case 2: particle with no neighbor to the right
-                else if (i == swarm.length - 1) {
-                    neighbors[0] = swarm[i - 1];
-                    neighbors[1] = swarm[i];
-                    neighbors[2] = swarm[0];
-                } else { // particle has a neighbor to the left and right
-                    neighbors[0] = swarm[i - 1];
-                    neighbors[1] = swarm[i];
-                    neighbors[2] = swarm[i + 1];
-                }
-                swarm[i].set_neighbors(neighbors);
-            }
-
-        } else if (topology.equals("ra")) {
-            for (int i = 0; i < swarm.length; i++) {
-                swarm[i].set_neighbors(generateRaNeighbors(swarm[i], swarm));
+            } else {
+                swarm[i].set_neighbors(new Particle[graph.end(i) - graph.start(i)]);
+                update_neighbors(swarm, i);
             }
         }
-        // von Neumann
-        else {
-            Particle[][] swarm_2d = vonNeumann_convert(swarm);
-            for (int i = 0; i < ROWS; i++) {
-                for (int j = 0; j < COLUMNS; j++) {
-
-                    Particle neighbors[];
-                    neighbors = new Particle[5];
-                    neighbors[0] = swarm_2d[i][j]; // a particle is its own neighbor
-
-                    if (i == 0) { // particle is in row 0
-                        neighbors[1] = swarm_2d[ROWS - 1][j];
-                    } else {
-                        // particle directly above
-                        neighbors[1] = swarm_2d[i - 1][j];
-                    }
-                    if (i == ROWS - 1) { // particle is in the last row
-                        neighbors[2] = swarm_2d[0][j];
-                    } else {
-                        // particle directly below
-                        neighbors[2] = swarm_2d[i + 1][j];
-                    }
-                    if (j == 0) { // particle is in column 0
-                        neighbors[3] = swarm_2d[i][COLUMNS - 1];
-                    } else {
-                        // particle directly to the left
-                        neighbors[3] = swarm_2d[i][j - 1];
-                    }
-                    if (j == COLUMNS - 1) { // particle is in last column
-                        neighbors[4] = swarm_2d[i][0];
-                    } else {
-                        // particle directly to the right
-                        neighbors[4] = swarm_2d[i][j + 1];
-
-                    }
-                    swarm_2d[i][j].set_neighbors(neighbors);
-                }
-            }
+    }
 
-        }
+    /**
+     * copies particle i's neighborhood from the graph into its neighbors array
+     */
+    private void update_neighbors(Particle[] swarm, int i) {
+        Particle[] neighbors = swarm[i].neighbors;
+        for (int slot = graph.start(i); slot < graph.end(i); slot++)
+            neighbors[slot - graph.start(i)] = swarm[graph.neighbor(slot)];
     }
 
 }
@@ -0,0 +1,48 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * SwarmIterationEvent
+ *
+ * Flight Recorder event for one PSO iteration. Disabled unless a recording
+ * enables gapso.SwarmIteration; its threshold can be raised to sample only
+ * the slow iterations.
+ */
+@Name("gapso.SwarmIteration")
+@Label("PSO Iteration")
+@Category("GA-PSO")
+@Description("One iteration of Swarm.execute")
+@Enabled(false)
+@StackTrace(false)
+class SwarmIterationEvent extends Event {
+
+    @Label("Iteration")
+    int iteration;
+
+    @Label("Update Time")
+    @Description("Moving, evaluating and updating the pbest of every particle")
+    @Timespan(Timespan.NANOSECONDS)
+    long updateTime;
+
+    @Label("Neighborhood Best Time")
+    @Description("Updating the gbests and, in the random topology, redrawing neighborhoods")
+    @Timespan(Timespan.NANOSECONDS)
+    long neighborhoodTime;
+
+    @Label("Best Value")
+    double bestValue;
+
+    void end(int iteration, long start, long updated, double best) {
+        this.iteration = iteration;
+        updateTime = updated - start;
+        neighborhoodTime = System.nanoTime() - updated;
+        bestValue = best;
+        commit();
+    }
+}
@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Sweep
+ *
+ * Parameter sweep in one JVM: reads a set of configurations, runs each a
+ * number of times concurrently through JobRunner, and writes one CSV line per
+ * run as soon as it finishes, so a long sweep can be watched and a cut-short
+ * one still has its results. Settings are Config field names.
+ *
+ * A grid file lists values per setting, and every combination is run:
+ *
+ *   function = ras, ros
+ *   topology = gl, ri, ra, vn
+ *   ga_mut_prob = 0.1, 0.3
+ *   replicates = 5
+ *   seed = 1
+ *
+ * A file ending in .csv lists the configurations instead, one per row under a
+ * header of setting names, with an optional replicates column. With a seed
+ * column, replicate r of a row is seeded with the row's seed + r.
+ *
+ * With a seed, the runs of the sweep are numbered from 0 in file order,
+ * replicates of a configuration together, and run j is seeded with seed + j,
+ * so every run of a sweep is reproducible and no two share a seed.
+ *
+ * to run: java Sweep <sweep file> [csv file] [threads]
+ *
+ * @author Mustafa Aydogdu
+ * @author Griffin Ott
+ * @author Evan Phillips
+ */
+public class Sweep {
+
+    public final List<String> keys = new ArrayList<String>(); // settings that vary, in file order
+    public final List<String[]> rows = new ArrayList<String[]>(); // their values per configuration
+    public final List<Integer> replicates = new ArrayList<Integer>();
+    public Long seed = null;
+
+    /**
+     * reads a grid or, for a .csv file, a list of configurations
+     */
+    public static Sweep read(String file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        for (String line : Files.readAllLines(Paths.get(file))) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#"))
+                lines.add(line);
+        }
+        Sweep sweep = new Sweep();
+        if (file.endsWith(".csv"))
+            sweep.readList(lines);
+        else
+            sweep.readGrid(lines);
+        return sweep;
+    }
+
+    private void readGrid(List<String> lines) {
+        List<String[]> values = new ArrayList<String[]>();
+        int count = 1;
+        for (String line : lines) {
+            int eq = line.indexOf('=');
+            if (eq < 0)
+                throw new IllegalArgumentException("expected setting = values: " + line);
+            String key = line.substring(0, eq).trim();
+            String[] options = line.substring(eq + 1).trim().split("\\s*,\\s*");
+            if (key.equals("replicates")) {
+                count = Integer.parseInt(options[0]);
+            } else if (key.equals("seed")) {
+                seed = Long.parseLong(options[0]);
+            } else {
+                new Config().set(key, options[0]); // fails early on unknown settings
+                keys.add(key);
+                values.add(options);
+            }
+        }
+        // every combination, the last setting varying fastest
+        int[] index = new int[keys.size()];
+        while (true) {
+            String[] row = new String[keys.size()];
+            for (int k = 0; k < row.length; k++)
+                row[k] = values.get(k)[index[k]];
+            rows.add(row);
+            replicates.add(count);
+            int k = index.length - 1;
+            while (k >= 0 && ++index[k] == values.get(k).length)
+                index[k--] = 0;
+            if (k < 0)
+                break;
+        }
+    }
+
+    private void readList(List<String> lines) {
+        String[] header = lines.get(0).split("\\s*,\\s*");
+        int replicate_col = Arrays.asList(header).indexOf("replicates");
+        for (int k = 0; k < header.length; k++) {
+            if (k != replicate_col)
+                keys.add(header[k]);
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            String[] cells = line.split("\\s*,\\s*", -1);
+            if (cells.length != header.length)
+                throw new IllegalArgumentException("expected " + header.length + " values: " + line);
+            String[] row = new String[keys.size()];
+            int c = 0;
+            for (int k = 0; k < cells.length; k++) {
+                if (k != replicate_col)
+                    row[c++] = cells[k];
+            }
+            rows.add(row);
+            replicates.add(replicate_col < 0 ? 1 : Integer.parseInt(cells[replicate_col]));
+        }
+    }
+
+    /**
+     * runs every configuration its number of times on the given number of
+     * threads, writing a line to csv as each run finishes
+     */
+    public void run(int threads, PrintStream csv) throws InterruptedException, ExecutionException {
+        List<Config> configs = new ArrayList<Config>();
+        List<String> labels = new ArrayList<String>(); // the varying settings and the replicate
+        for (int i = 0; i < rows.size(); i++) {
+            for (int r = 0; r < replicates.get(i); r++) {
+                Config config = new Config();
+                for (int k = 0; k < keys.size(); k++)
+                    config.set(keys.get(k), rows.get(i)[k]);
+                if (config.seed != null) // from a seed column
+                    config.seed = config.seed + r;
+                else if (seed != null)
+                    config.seed = seed + configs.size();
+                configs.add(config);
+                labels.add(String.join(",", rows.get(i)) + "," + r);
+            }
+        }
+
+        csv.println(String.join(",", keys) + ",replicate,seed,best,evaluations,seconds,stopped_by");
+        csv.flush();
+        JobRunner.runAll(configs, threads, (run, i) -> {
+            csv.println(labels.get(i) + "," + run.config.seed + "," + run.min_Val + ","
+                    + run.objective.getEvaluations() + "," + String.format("%.3f", run.nanos / 1e9) + ","
+                    + run.termination.reason());
+            csv.flush();
+        });
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 1 || args.length > 3) {
+            System.out.println("Usage: java Sweep <sweep file> [csv file] [threads]");
+            return;
+        }
+        Sweep sweep = read(args[0]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        if (args.length > 1) {
+            try (PrintStream csv = new PrintStream(args[1])) {
+                sweep.run(threads, csv);
+            }
+        } else {
+            sweep.run(threads, System.out);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Termination
+ *
+ * Decides when a run has spent its budget or stopped making progress. The
+ * swarm reports the best value it has found after every iteration, or in the
+ * asynchronous mode once every swarm-size moves of each thread, and the GA
+ * the best value it evaluated exactly in each batch; the swarm, the GA and
+ * the run loop ask done() before each iteration or generation. A run stops at
+ * the first of:
+ *
+ * - "evaluations": max_evaluations objective evaluations have been made
+ * - "time": time_limit seconds have passed since the run began
+ * - "target": a value at or below target has been found
+ * - "stagnation": the best value has not improved by more than
+ *   stagnation_epsilon in the last stagnation evaluations
+ *
+ * and otherwise after its configured iterations, reported as "iterations".
+ * Fitness the GA took from screening or the surrogate is approximate and is
+ * never reported. As asynchronous reports are batched, an improvement can be
+ * seen up to swarm-size moves per thread late.
+ *
+ * Safe to share between the threads of a pipelined or parallel run.
+ */
+public class Termination {
+
+    private final CountingObjective objective;
+    private final long max_evaluations; // 0 for no limit
+    private final long deadline; // System.nanoTime() at which time runs out
+    private final boolean timed;
+    private final double target;
+    private final long stagnation; // 0 to not detect stagnation
+    private final double stagnation_epsilon;
+
+    private double best = Double.MAX_VALUE; // guarded by this
+    private long best_at; // evaluations made when best last improved, guarded by this
+    private volatile String reason; // null while the run goes on
+
+    /**
+     * a controller for a run starting now, counting the evaluations of its
+     * objective
+     */
+    public Termination(Config config, CountingObjective objective) {
+        this.objective = objective;
+        this.max_evaluations = config.max_evaluations;
+        this.timed = config.time_limit > 0;
+        this.deadline = System.nanoTime() + (long) (config.time_limit * 1e9);
+        this.target = config.target;
+        this.stagnation = config.stagnation;
+        this.stagnation_epsilon = config.stagnation_epsilon;
+        this.best_at = objective.getEvaluations();
+    }
+
+    /**
+     * records the best value found so far, stopping the run if it reaches the
+     * target
+     */
+    public synchronized void report(double value) {
+        if (value < best - stagnation_epsilon) {
+            best_at = objective.getEvaluations();
+        }
+        if (value < best)
+            best = value;
+        if (value <= target)
+            stop("target");
+    }
+
+    /**
+     * returns whether the run should stop, checking the budgets
+     */
+    public boolean done() {
+        if (reason != null)
+            return true;
+        long evaluations = objective.getEvaluations();
+        if (max_evaluations > 0 && evaluations >= max_evaluations)
+            stop("evaluations");
+        else if (timed && System.nanoTime() - deadline >= 0)
+            stop("time");
+        else if (stagnation > 0 && evaluations - bestAt() >= stagnation)
+            stop("stagnation");
+        return reason != null;
+    }
+
+    /**
+     * the criterion that stopped the run, or "iterations" if none did
+     */
+    public String reason() {
+        return reason == null ? "iterations" : reason;
+    }
+
+    private synchronized long bestAt() {
+        return best_at;
+    }
+
+    private synchronized void stop(String why) {
+        if (reason == null) // the first criterion met is the one reported
+            reason = why;
+    }
+}
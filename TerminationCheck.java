@@ -0,0 +1,77 @@
+/**
+ * TerminationCheck
+ *
+ * Test of runs stopped by a budget before their first GA phase: every
+ * criterion is set so it fires inside the opening PSO phase, and the run must
+ * still report the best value it evaluated, at the position it reports, for
+ * both storages, a pipelined run and the island model. The first failure is
+ * reported and the check exits with status 1.
+ *
+ * to run: java TerminationCheck
+ */
+public class TerminationCheck {
+
+    private static int checked;
+
+    public static void main(String[] args) throws Exception {
+        for (String storage : new String[] { "soa", "obj" }) {
+            Config c = config(storage);
+            c.max_evaluations = 3000;
+            check(c, "evaluations", true);
+
+            c = config(storage);
+            c.target = 700;
+            check(c, "target", true);
+
+            c = config(storage);
+            c.time_limit = 0.05;
+            check(c, "time", false); // a slow start may take more than the phase
+        }
+        Config c = config("soa");
+        c.max_evaluations = 3000;
+        c.pipeline = true;
+        check(c, "evaluations", false);
+
+        c = config("soa");
+        c.max_evaluations = 3000;
+        c.islands = 2;
+        Islands model = new Islands(c).run();
+        for (HybridRun island : model.islands)
+            expect(island, "evaluations", true, "islands");
+        if (!(model.min_Val < Double.MAX_VALUE))
+            fail("islands", "no best over the islands");
+        System.out.println("runs stopped in their first phase report their best in " + checked + " cases");
+    }
+
+    private static Config config(String storage) {
+        Config c = new Config();
+        c.function = "ras";
+        c.seed = 1L;
+        c.storage = storage;
+        return c;
+    }
+
+    private static void check(Config c, String reason, boolean first_phase) {
+        HybridRun run = new HybridRun(c).run();
+        expect(run, reason, first_phase, c.storage + (c.pipeline ? " pipelined" : ""));
+    }
+
+    private static void expect(HybridRun run, String reason, boolean first_phase, String label) {
+        label = label + " " + reason;
+        if (!run.termination.reason().equals(reason))
+            fail(label, "stopped by " + run.termination.reason());
+        if (first_phase && run.iteration != 0)
+            fail(label, "stopped after " + run.iteration + " steps, not in the first phase");
+        if (!(run.min_Val < Double.MAX_VALUE) || run.min_pos == null)
+            fail(label, "no best value after " + run.objective.getEvaluations() + " evaluations");
+        double value = ObjectiveFunction.forName(run.config.function).evaluate(run.min_pos);
+        if (Math.abs(value - run.min_Val) > 1e-9 * Math.max(1.0, Math.abs(value)))
+            fail(label, "best " + run.min_Val + " but its position evaluates to " + value);
+        checked++;
+    }
+
+    private static void fail(String label, String why) {
+        System.out.println(label + ": " + why);
+        System.exit(1);
+    }
+}
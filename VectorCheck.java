@@ -0,0 +1,55 @@
+import java.util.SplittableRandom;
+
+/**
+ * VectorCheck
+ *
+ * Correctness test of the SIMD objectives: every vector kernel is compared
+ * against its scalar function on seeded random points at dimensionalities
+ * around the vector width and up to 1000, including points near the optimum
+ * and far outside the initial range. The first disagreement beyond the
+ * tolerance is reported with the seed, function, dimensionality and point
+ * scale that reproduce it, and the check exits with status 1.
+ *
+ * to run: java --add-modules jdk.incubator.vector VectorCheck [seed]
+ */
+public class VectorCheck {
+
+    private static final String[] FUNCTIONS = { "ros", "ack", "ras", "zakh", "styb" };
+    private static final int[] DIMENSIONS = { 1, 2, 3, 4, 5, 7, 8, 9, 15, 16, 17, 30, 100, 1000 };
+    private static final int TRIALS = 100; // points per function, dimensionality and scale
+    private static final double TOLERANCE = 1e-9; // relative
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        int checked = 0;
+        for (String name : FUNCTIONS) {
+            ObjectiveFunction scalar = ObjectiveFunction.forName(name);
+            ObjectiveFunction vector = ObjectiveFunction.vectorized(scalar);
+            if (vector == scalar) {
+                System.out.println("no vector kernel for " + name
+                        + "; run with --add-modules jdk.incubator.vector");
+                System.exit(1);
+            }
+            double[] scales = { 1e-6, 1.0, scalar.getMaxPosition(), 1e3, 1e17 };
+            for (int d : DIMENSIONS) {
+                for (double scale : scales) {
+                    SplittableRandom rand = new SplittableRandom(seed);
+                    for (int trial = 0; trial < TRIALS; trial++) {
+                        double[] pos = new double[d];
+                        for (int i = 0; i < d; i++)
+                            pos[i] = (2.0 * rand.nextDouble() - 1.0) * scale;
+                        double expected = scalar.evaluate(pos);
+                        double actual = vector.evaluate(pos);
+                        if (!(Math.abs(actual - expected) <= TOLERANCE * Math.max(1.0, Math.abs(expected)))) {
+                            System.out.println("vector eval_" + name + " d=" + d + " scale=" + scale + " seed=" + seed
+                                    + " trial=" + trial + " gives " + actual + ", scalar gives " + expected);
+                            System.exit(1);
+                        }
+                        checked++;
+                    }
+                }
+            }
+        }
+        System.out.println("vector kernels agree with the scalar functions on " + checked + " points");
+    }
+}
@@ -0,0 +1,248 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorObjective
+ *
+ * SIMD versions of the objective functions built on jdk.incubator.vector.
+ * Needs --add-modules jdk.incubator.vector at compile and run time; callers
+ * reach it only through ObjectiveFunction.vectorized, which falls back to the
+ * scalar function when the module is missing.
+ *
+ * Results agree with the scalar functions up to rounding, as the lanes sum in
+ * a different order.
+ */
+public class VectorObjective implements ObjectiveFunction {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final double[] IOTA = new double[LANES]; // 0, 1, ..., LANES - 1
+
+    // adding and subtracting 1.5 * 2^52 rounds any |x| < 2^51 to the nearest integer
+    private static final double ROUND = 0x1.8p52;
+    private static final double ROUND_LIMIT = 0x1p51;
+
+    // Taylor coefficients of cos(z) in z^2, enough for double precision on [-pi/2, pi/2]
+    private static final double[] COS = new double[11];
+
+    static {
+        for (int i = 0; i < LANES; i++)
+            IOTA[i] = i;
+        double factorial = 1.0;
+        for (int k = 0; k < COS.length; k++) {
+            if (k > 0)
+                factorial *= (2 * k - 1) * (2 * k);
+            COS[k] = (k % 2 == 0 ? 1.0 : -1.0) / factorial;
+        }
+    }
+
+    private final ObjectiveFunction scalar; // reference function, also supplies the bounds
+    private final int kind;
+
+    private VectorObjective(ObjectiveFunction scalar, int kind) {
+        this.scalar = scalar;
+        this.kind = kind;
+    }
+
+    /**
+     * returns the vectorized version of a built-in function, or null if there is
+     * none
+     */
+    public static ObjectiveFunction wrap(ObjectiveFunction function) {
+        if (function instanceof Rosenbrock)
+            return new VectorObjective(function, 0);
+        else if (function instanceof Ackley)
+            return new VectorObjective(function, 1);
+        else if (function instanceof Rastrigin)
+            return new VectorObjective(function, 2);
+        else if (function instanceof Zakharov)
+            return new VectorObjective(function, 3);
+        else if (function instanceof StyblinskiTang)
+            return new VectorObjective(function, 4);
+        return null;
+    }
+
+    @Override
+    public double evaluate(double[] pos, int off, int d) {
+        switch (kind) {
+        case 0:
+            return ros(pos, off, d);
+        case 1:
+            return ack(pos, off, d);
+        case 2:
+            return ras(pos, off, d);
+        case 3:
+            return zakh(pos, off, d);
+        default:
+            return styb(pos, off, d);
+        }
+    }
+
+    @Override
+    public boolean hasApproximation() {
+        return scalar.hasApproximation();
+    }
+
+    @Override
+    public double approximate(double[] pos, int off, int d) {
+        return scalar.approximate(pos, off, d);
+    }
+
+    @Override
+    public double getApproximationError(double approx, int d) {
+        return scalar.getApproximationError(approx, d);
+    }
+
+    @Override
+    public double getMinPosition() {
+        return scalar.getMinPosition();
+    }
+
+    @Override
+    public double getMaxPosition() {
+        return scalar.getMaxPosition();
+    }
+
+    @Override
+    public double getMinVelocity() {
+        return scalar.getMinVelocity();
+    }
+
+    @Override
+    public double getMaxVelocity() {
+        return scalar.getMaxVelocity();
+    }
+
+    static double ros(double[] pos, int off, int d) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i + LANES < d; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, pos, off + i);
+            DoubleVector next = DoubleVector.fromArray(SPECIES, pos, off + i + 1);
+            DoubleVector a = next.sub(x.mul(x));
+            DoubleVector b = x.sub(1.0);
+            acc = acc.add(a.mul(a).mul(100.0)).add(b.mul(b));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < d - 1; i++) {
+            double a = pos[off + i + 1] - pos[off + i] * pos[off + i];
+            double b = pos[off + i] - 1.0;
+            sum += 100.0 * a * a + b * b;
+        }
+        return sum;
+    }
+
+    /**
+     * The sum of squares keeps the scalar loop, whose overflow test depends on
+     * the order of the additions; the cosine sum, which dominates, is vectorized.
+     * Only two exponentials are taken per evaluation, so exp stays scalar.
+     */
+    static double ack(double[] pos, int off, int d) {
+        double firstSum = 0.0;
+        boolean overflow = false;
+        for (int i = off; i < off + d; i++) {
+            double prev = firstSum;
+            firstSum += pos[i] * pos[i];
+            if ((pos[i] > 0 && firstSum <= prev))
+                overflow = true;
+        }
+
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i + LANES <= d; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, pos, off + i);
+            acc = acc.add(cos2pi(x));
+        }
+        double secondSum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < d; i++)
+            secondSum += Math.cos(2.0 * Math.PI * pos[off + i]);
+
+        double part1 = Math.exp(-0.2 * Math.sqrt(firstSum / (double) (d)));
+        if (firstSum != 0 && part1 == 0)
+            overflow = true;
+        double part2 = Math.exp(secondSum / (double) (d));
+        if (secondSum != 0 && part2 == 0)
+            overflow = true;
+        if (overflow)
+            return Double.MAX_VALUE;
+        else
+            return -20.0 * part1 - part2 + 20.0 + Math.E;
+    }
+
+    static double ras(double[] pos, int off, int d) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i + LANES <= d; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, pos, off + i);
+            acc = acc.add(x.mul(x).sub(cos2pi(x).mul(10.0)).add(10.0));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < d; i++)
+            sum += pos[off + i] * pos[off + i] - 10.0 * Math.cos(2.0 * Math.PI * pos[off + i]) + 10.0;
+        return sum;
+    }
+
+    static double zakh(double[] pos, int off, int d) {
+        DoubleVector squares = DoubleVector.zero(SPECIES);
+        DoubleVector weighted = DoubleVector.zero(SPECIES);
+        DoubleVector index = DoubleVector.fromArray(SPECIES, IOTA, 0);
+        int i = 0;
+        for (; i + LANES <= d; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, pos, off + i);
+            squares = squares.add(x.mul(x));
+            weighted = weighted.add(index.mul(x).mul(0.5));
+            index = index.add((double) LANES);
+        }
+        double sum = squares.reduceLanes(VectorOperators.ADD);
+        double other_term = weighted.reduceLanes(VectorOperators.ADD);
+        for (; i < d; i++) {
+            sum += pos[off + i] * pos[off + i];
+            other_term += 0.5 * (double) (i) * pos[off + i];
+        }
+        double other_sq = other_term * other_term;
+        return sum + other_sq + other_sq * other_sq;
+    }
+
+    static double styb(double[] pos, int off, int d) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i + LANES <= d; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, pos, off + i);
+            DoubleVector x2 = x.mul(x);
+            acc = acc.add(x2.mul(x2).sub(x2.mul(16.0)).add(x.mul(5.0)));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < d; i++) {
+            double x2 = pos[off + i] * pos[off + i];
+            sum += x2 * x2 - 16 * x2 + 5 * pos[off + i];
+        }
+        return sum / 2.0;
+    }
+
+    /**
+     * cos(2 * pi * x) per lane. x is reduced to t = x - round(x) in [-1/2, 1/2],
+     * folded to r in [0, 1/4] using cos(2 pi t) = -cos(2 pi (1/2 - |t|)), and
+     * cos(2 pi r) is taken from its Taylor polynomial. Lanes too large for the
+     * rounding trick are computed with Math.cos.
+     */
+    static DoubleVector cos2pi(DoubleVector x) {
+        if (x.abs().compare(VectorOperators.GE, ROUND_LIMIT).anyTrue()) {
+            double[] lanes = x.toArray();
+            for (int i = 0; i < lanes.length; i++)
+                lanes[i] = Math.cos(2.0 * Math.PI * lanes[i]);
+            return DoubleVector.fromArray(SPECIES, lanes, 0);
+        }
+        DoubleVector t = x.sub(x.add(ROUND).sub(ROUND));
+        DoubleVector a = t.abs();
+        VectorMask<Double> far = a.compare(VectorOperators.GT, 0.25);
+        DoubleVector r = a.blend(a.neg().add(0.5), far);
+        DoubleVector z = r.mul(2.0 * Math.PI);
+        DoubleVector z2 = z.mul(z);
+        DoubleVector p = DoubleVector.broadcast(SPECIES, COS[COS.length - 1]);
+        for (int k = COS.length - 2; k >= 0; k--)
+            p = p.mul(z2).add(COS[k]);
+        return p.blend(p.neg(), far);
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Worker
+ *
+ * Stand-in for an out-of-process objective, see RemoteObjective: answers the
+ * requests on its standard input with the values of a built-in function on
+ * its standard output until its input ends. The optional delay, in
+ * microseconds per evaluation, imitates an expensive simulator.
+ *
+ * usage: java Worker function [delay]
+ */
+public class Worker {
+
+    public static void main(String[] args) throws IOException {
+        ObjectiveFunction function = ObjectiveFunction.forName(args.length > 0 ? args[0] : "styb");
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        byte[] bytes = new byte[0];
+        double[] positions = new double[0];
+        while (true) {
+            int id;
+            try {
+                id = in.readInt();
+            } catch (EOFException e) {
+                return; // the optimizer closed this worker
+            }
+            int n = in.readInt();
+            int d = in.readInt();
+            if (bytes.length < 8 * n * d) {
+                bytes = new byte[8 * n * d];
+                positions = new double[n * d];
+            }
+            in.readFully(bytes, 0, 8 * n * d);
+            ByteBuffer.wrap(bytes, 0, 8 * n * d).asDoubleBuffer().get(positions, 0, n * d);
+            if (delay > 0)
+                LockSupport.parkNanos(delay * 1000 * n);
+            ByteBuffer answer = ByteBuffer.allocate(8 + 8 * n);
+            answer.putInt(id).putInt(n);
+            for (int i = 0; i < n; i++)
+                answer.putDouble(function.evaluate(positions, i * d, d));
+            out.write(answer.array());
+            out.flush();
+        }
+    }
+}
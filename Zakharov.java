@@ -0,0 +1,29 @@
+/**
+ * Zakharov
+ *
+ * minimum is 0.0, which occurs at (0.0,...,0.0)
+ */
+public class Zakharov implements ObjectiveFunction {
+
+    @Override
+    public double evaluate(double[] pos, int off, int d) {
+        double sum = 0.0;
+        double other_term = 0.0;
+        for (int i = 0; i < d; i++) {
+            sum += pos[off + i] * pos[off + i];
+            other_term += 0.5 * (double) (i) * pos[off + i];
+        }
+        double other_sq = other_term * other_term;
+        return sum + other_sq + other_sq * other_sq;
+    }
+
+    @Override
+    public double getMinPosition() {
+        return 5.0;
+    }
+
+    @Override
+    public double getMaxPosition() {
+        return 10.0;
+    }
+}
@@ -0,0 +1,256 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleSupplier;
+
+/**
+ * BenchmarkOps
+ *
+ * The operations the JMH benchmarks in jmh/bench time: the objective functions,
+ * the particle update and neighborhood-best steps, the GA operators, one full
+ * GA+PSO round, the trace producer and the synchronous against the
+ * asynchronous swarm. JMH does not accept benchmarks in the default package,
+ * and named packages cannot see it, so the benchmarks load this class by name
+ * and call create once per trial; each call of the returned operation is one
+ * benchmark operation, and its result is consumed by JMH.
+ */
+public class BenchmarkOps {
+
+    static final int SIZE = 49; // fills the 7x7 von Neumann grid
+    static final int DIM = 30;
+    static final int ASYNC_THREADS = 4;
+    static final long ASYNC_DELAY_NS = 500_000L; // mean wait of an evaluation in pso
+
+    /**
+     * Returns the operation of a benchmark:
+     *
+     * - "eval" function d, "vector eval" function d: one evaluation
+     * - "update_velocity_position": one particle move
+     * - "set_gbest" topology: one particle's neighborhood best
+     * - "ga" operator: rankSelection, expRankSelection, boltzmannSelection,
+     *   onePointCross, uniformCross (both with evaluating the children) or
+     *   mutation on a population of SIZE
+     * - "round": one iteration of the loop in HybridRun.run
+     * - "trace": one record into the convergence trace
+     * - "pso sync", "pso async": ten iterations of a swarm on ASYNC_THREADS
+     *   threads whose evaluations wait a random 0 to 2 * ASYNC_DELAY_NS, as
+     *   when they wait on a simulator; the operation returns the evaluations
+     *   it made
+     *
+     * Operations holding threads or files are AutoCloseable, and are closed
+     * when their trial ends.
+     */
+    public static DoubleSupplier create(String benchmark, String arg, int d) {
+        Config config = new Config(); // the defaults Main runs with
+        Rng rng = new Rng(1);
+        switch (benchmark) {
+        case "eval":
+        case "vector eval":
+            return evaluation(benchmark.equals("vector eval"), arg, d);
+        case "update_velocity_position":
+            return move(rng);
+        case "set_gbest":
+            return gbest(arg, rng);
+        case "ga":
+            return ga(arg, config, rng);
+        case "round":
+            return round(config, rng);
+        case "trace":
+            return trace();
+        case "pso sync":
+        case "pso async":
+            return pso(benchmark.equals("pso async"));
+        default:
+            throw new IllegalArgumentException("unknown benchmark " + benchmark);
+        }
+    }
+
+    private static DoubleSupplier evaluation(boolean vectorized, String name, int d) {
+        ObjectiveFunction scalar = ObjectiveFunction.forName(name);
+        ObjectiveFunction function = vectorized ? ObjectiveFunction.vectorized(scalar) : scalar;
+        if (vectorized && function == scalar)
+            throw new IllegalStateException("no vector kernel; run with --add-modules jdk.incubator.vector");
+        SplittableRandom rand = new SplittableRandom(d);
+        double[] pos = new double[d];
+        for (int i = 0; i < d; i++)
+            pos[i] = rand.nextDouble(scalar.getMinPosition(), scalar.getMaxPosition());
+        return () -> function.evaluate(pos);
+    }
+
+    /**
+     * restores the particle first, as repeated moves towards a fixed pbest and
+     * gbest shrink the velocity into subnormal values
+     */
+    private static DoubleSupplier move(Rng rng) {
+        Particle[] swarm = newSwarm("gl", new Rastrigin(), rng).swarm;
+        double[][] positions = new double[swarm.length][];
+        double[][] velocities = new double[swarm.length][];
+        for (int i = 0; i < swarm.length; i++) {
+            positions[i] = swarm[i].position.clone();
+            velocities[i] = swarm[i].velocity.clone();
+        }
+        int[] next = { 0 };
+        return () -> {
+            int k = next[0]++ % swarm.length;
+            Particle p = swarm[k];
+            System.arraycopy(positions[k], 0, p.position, 0, DIM);
+            System.arraycopy(velocities[k], 0, p.velocity, 0, DIM);
+            p.update_velocity_position();
+            return p.position[0];
+        };
+    }
+
+    private static DoubleSupplier gbest(String topology, Rng rng) {
+        Particle[] swarm = newSwarm(topology, new Rastrigin(), rng).swarm;
+        int[] next = { 0 };
+        return () -> {
+            Particle p = swarm[next[0]++ % swarm.length];
+            p.set_gbest();
+            return p.getGbestVal();
+        };
+    }
+
+    /**
+     * the GA operators on a fixed population; mutation restores the population
+     * first so the genomes do not drift towards subnormal values
+     */
+    private static DoubleSupplier ga(String operator, Config config, Rng rng) {
+        ObjectiveFunction function = new Rastrigin();
+        Swarm s = newSwarm("gl", function, rng);
+        GA ga = new GA(DIM, SIZE, function, config.ga_cross_prob, config.ga_mut_prob, config.shift, rng);
+        ArrayList<Individual> population = new ArrayList<Individual>();
+        for (int i = 0; i < SIZE; i++)
+            population.add(new Individual(s.createPosition(-5.12, 5.12), function));
+        switch (operator) {
+        case "rankSelection":
+            return () -> ga.rankSelection(population).size();
+        case "expRankSelection":
+            return () -> ga.expRankSelection(population).size();
+        case "boltzmannSelection":
+            return () -> ga.boltzmannSelection(population).size();
+        case "onePointCross":
+            return () -> {
+                ArrayList<Individual> children = ga.onePointCross(new ArrayList<Individual>(population));
+                ga.evaluateDirty(children);
+                return children.size();
+            };
+        case "uniformCross":
+            return () -> {
+                ArrayList<Individual> children = ga.uniformCross(new ArrayList<Individual>(population));
+                ga.evaluateDirty(children);
+                return children.size();
+            };
+        case "mutation":
+            double[][] template = new double[SIZE][];
+            for (int i = 0; i < SIZE; i++)
+                template[i] = population.get(i).position.clone();
+            return () -> {
+                for (int i = 0; i < SIZE; i++)
+                    System.arraycopy(template[i], 0, population.get(i).position, 0, DIM);
+                return ga.mutation(population, config.ga_mut_prob, config.shift).size();
+            };
+        default:
+            throw new IllegalArgumentException("unknown GA operator " + operator);
+        }
+    }
+
+    private static DoubleSupplier round(Config config, Rng rng) {
+        ObjectiveFunction function = ObjectiveFunction.forName(config.function);
+        Swarm s = newSwarm(config.topology, function, rng);
+        GA population = new GA(DIM, SIZE, function, config.ga_cross_prob, config.ga_mut_prob, config.shift, rng);
+        ArrayList<ArrayList<Individual>> curPop = new ArrayList<ArrayList<Individual>>();
+        curPop.add(s.execute(config.runPSO));
+        return () -> {
+            double[][] curPositions = population.execute(config.runGA, config.crossover, config.selection,
+                    curPop.get(0));
+            for (int j = 0; j < SIZE; j++)
+                System.arraycopy(curPositions[j], 0, s.getParticle(j).position, 0, DIM);
+            curPop.set(0, s.execute(config.runPSO));
+            return s.min;
+        };
+    }
+
+    /**
+     * the trace producer, drained to a temporary file by the writer thread
+     */
+    private static DoubleSupplier trace() {
+        try {
+            Path file = Files.createTempFile("trace", ".bin");
+            Trace trace = new Trace(file, 1 << 16);
+            long[] iteration = { 0 };
+            return new Op(() -> {
+                trace.record(iteration[0]++, Trace.PSO, 1.0, 2.0, iteration[0], 3.0);
+                return iteration[0];
+            }, () -> {
+                trace.close();
+                Files.delete(file);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * an operation with resources to release once its trial ends
+     */
+    private static class Op implements DoubleSupplier, AutoCloseable {
+        private final DoubleSupplier op;
+        private final Closeable resources;
+
+        Op(DoubleSupplier op, Closeable resources) {
+            this.op = op;
+            this.resources = resources;
+        }
+
+        public double getAsDouble() {
+            return op.getAsDouble();
+        }
+
+        public void close() {
+            try {
+                resources.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static DoubleSupplier pso(boolean async) {
+        ObjectiveFunction rastrigin = new Rastrigin();
+        CountingObjective function = new CountingObjective(new ObjectiveFunction() {
+            public double evaluate(double[] pos, int off, int d) {
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(2 * ASYNC_DELAY_NS));
+                return rastrigin.evaluate(pos, off, d);
+            }
+
+            public double getMinPosition() {
+                return rastrigin.getMinPosition();
+            }
+
+            public double getMaxPosition() {
+                return rastrigin.getMaxPosition();
+            }
+        });
+        Swarm s = newSwarm("ri", function, new Rng(1));
+        s.storage = "obj";
+        s.threads = ASYNC_THREADS;
+        s.async = async;
+        return new Op(() -> {
+            long before = function.getEvaluations();
+            s.execute(10);
+            return function.getEvaluations() - before;
+        }, () -> s.pool.shutdown());
+    }
+
+    private static Swarm newSwarm(String topology, ObjectiveFunction function, Rng rng) {
+        Swarm s = new Swarm(topology, SIZE, function, DIM, rng);
+        s.swarm = s.generate_swarm(function, topology);
+        return s;
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GABench
+ *
+ * The selection, crossover and mutation operators on a fixed population, and
+ * one full GA+PSO round with the default configuration. Crossover includes
+ * evaluating the children.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GABench {
+
+    @State(Scope.Thread)
+    public static class Operator {
+        @Param({ "rankSelection", "expRankSelection", "boltzmannSelection", "onePointCross", "uniformCross",
+                "mutation" })
+        public String operator;
+
+        DoubleSupplier op;
+
+        @Setup
+        public void setup() {
+            op = Ops.create("ga", operator, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Round {
+        DoubleSupplier op;
+
+        @Setup
+        public void setup() {
+            op = Ops.create("round", null, 0);
+        }
+    }
+
+    @Benchmark
+    public double operator(Operator state) {
+        return state.op.getAsDouble();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double round(Round state) {
+        return state.op.getAsDouble();
+    }
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ObjectiveBench
+ *
+ * One evaluation of each objective at each dimensionality, scalar and SIMD.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ObjectiveBench {
+
+    @Param({ "ros", "ack", "ras", "zakh", "styb" })
+    public String function;
+
+    @Param({ "10", "30", "100", "1000" })
+    public int d;
+
+    @Param({ "eval", "vector eval" })
+    public String kernel;
+
+    private DoubleSupplier op;
+
+    @Setup
+    public void setup() {
+        op = Ops.create(kernel, function, d);
+    }
+
+    @Benchmark
+    public double evaluate() {
+        return op.getAsDouble();
+    }
+}
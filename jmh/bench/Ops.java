@@ -0,0 +1,35 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Ops
+ *
+ * Loads the operations of the benchmarks from BenchmarkOps, which lives in
+ * jmh/ but in the default package with the rest of the optimizer and so can
+ * only be reached by name, and releases them after their trial.
+ */
+final class Ops {
+
+    private Ops() {
+    }
+
+    static DoubleSupplier create(String benchmark, String arg, int d) {
+        try {
+            return (DoubleSupplier) Class.forName("BenchmarkOps")
+                    .getMethod("create", String.class, String.class, int.class).invoke(null, benchmark, arg, d);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkOps is not on the class path", e);
+        }
+    }
+
+    static void close(DoubleSupplier op) throws Exception {
+        if (op instanceof AutoCloseable)
+            ((AutoCloseable) op).close();
+    }
+}
@@ -0,0 +1,62 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ParticleBench
+ *
+ * Particle.update_velocity_position, and Particle.set_gbest for every
+ * topology.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ParticleBench {
+
+    @State(Scope.Thread)
+    public static class Move {
+        DoubleSupplier op;
+
+        @Setup
+        public void setup() {
+            op = Ops.create("update_velocity_position", null, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Gbest {
+        @Param({ "gl", "ri", "ra", "vn" })
+        public String topology;
+
+        DoubleSupplier op;
+
+        @Setup
+        public void setup() {
+            op = Ops.create("set_gbest", topology, 0);
+        }
+    }
+
+    @Benchmark
+    public double update_velocity_position(Move state) {
+        return state.op.getAsDouble();
+    }
+
+    @Benchmark
+    public double set_gbest(Gbest state) {
+        return state.op.getAsDouble();
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SwarmBench
+ *
+ * Evaluations per second of the synchronous and the asynchronous swarm, with
+ * an objective whose evaluation time varies as when it waits on a simulator.
+ * The synchronous swarm waits for its slowest particle every iteration; the
+ * evaluations counter is the figure to compare.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class SwarmBench {
+
+    @Param({ "pso sync", "pso async" })
+    public String mode;
+
+    private DoubleSupplier op;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long evaluations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            evaluations = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        op = Ops.create(mode, null, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Ops.close(op);
+    }
+
+    @Benchmark
+    public void execute(Counters counters) {
+        counters.evaluations += (long) op.getAsDouble();
+    }
+}